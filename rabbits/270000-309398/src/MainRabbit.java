@@ -1,6 +1,30 @@
 public class MainRabbit {
 
-    public static void main(String[] args){
+    public static void main(String[] args) throws Exception {
+
+	// "--headless <ticks> <output file> [Parameter=value ...]" runs the model without any GUI
+	if (args.length > 0 && args[0].equals("--headless")) {
+	    String[] batchArgs = new String[args.length - 1];
+	    System.arraycopy(args, 1, batchArgs, 0, batchArgs.length);
+	    RabbitsGrassBatchRunner.main(batchArgs);
+	    return;
+	}
+
+	// "--sweep <ticks> <replicas> <output file> [Parameter=values ...]" runs a parallel parameter sweep
+	if (args.length > 0 && args[0].equals("--sweep")) {
+	    String[] sweepArgs = new String[args.length - 1];
+	    System.arraycopy(args, 1, sweepArgs, 0, sweepArgs.length);
+	    RabbitsGrassSweep.main(sweepArgs);
+	    return;
+	}
+
+	// "--bench [output file] [Option=values ...]" benchmarks the hot paths of the simulation
+	if (args.length > 0 && args[0].equals("--bench")) {
+	    String[] benchArgs = new String[args.length - 1];
+	    System.arraycopy(args, 1, benchArgs, 0, benchArgs.length);
+	    RabbitsGrassBenchmark.main(benchArgs);
+	    return;
+	}
 
 	RabbitsGrassSimulationModel.main(args);
 
@@ -0,0 +1,169 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+/**
+ * Class that runs the rabbits grass simulation without any display, plot or Repast controller.
+ * It builds the model, runs its ticks in a tight loop and writes the population and grass series to a file.
+ * @author
+ */
+public class RabbitsGrassBatchRunner {
+
+    private final RabbitsGrassSimulationModel model;
+    private final int ticks;
+    private final String outputFile;
+
+    private TickListener listener;
+    private double ticksPerSecond;
+    private int ticksRun;
+
+    /**
+     * Receives the state of the model after every tick of a run
+     */
+    public interface TickListener {
+        /**
+         * Called after a tick
+         * @param tick, the number of the tick, starting at 1
+         * @param model, the model after the tick
+         */
+        void tick(int tick, RabbitsGrassSimulationModel model);
+    }
+
+    /**
+     * Class constructor
+     * @param model, the model to run, its parameters already set
+     * @param ticks, the number of ticks to run
+     * @param outputFile, the file the series are written to, null to write nothing
+     */
+    public RabbitsGrassBatchRunner(RabbitsGrassSimulationModel model, int ticks, String outputFile) {
+        this.model = model;
+        this.ticks = ticks;
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * Main function
+     * @param args, the number of ticks, the output file and any number of Parameter=value pairs
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: MainRabbit --headless <ticks> <output file> [Parameter=value ...]");
+            return;
+        }
+        RabbitsGrassSimulationModel model = new RabbitsGrassSimulationModel();
+        for (int i = 2; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected Parameter=value, got " + args[i]);
+            }
+            setParameter(model, args[i].substring(0, eq), args[i].substring(eq + 1));
+        }
+        RabbitsGrassBatchRunner runner = new RabbitsGrassBatchRunner(model, Integer.parseInt(args[0]), args[1]);
+        runner.run();
+        System.out.println(runner.getTicksRun() + " ticks at " + Math.round(runner.getTicksPerSecond()) + " ticks per second");
+        if (model.getStopReason() != null) {
+            System.out.println("Stopped early: " + model.getStopReason());
+        }
+    }
+
+    /**
+     * Sets one of the parameters listed by getInitParam() through its setter
+     * @param model, the model to set the parameter on
+     * @param name, the name of the parameter, e.g. GridSize
+     * @param value, the value of the parameter
+     */
+    public static void setParameter(RabbitsGrassSimulationModel model, String name, String value) {
+        for (Method method : model.getClass().getMethods()) {
+            if (method.getName().equals("set" + name) && method.getParameterTypes().length == 1) {
+                Class<?> type = method.getParameterTypes()[0];
+                try {
+                    if (type == int.class) {
+                        method.invoke(model, Integer.parseInt(value));
+                    } else if (type == long.class) {
+                        method.invoke(model, Long.parseLong(value));
+                    } else if (type == double.class) {
+                        method.invoke(model, Double.parseDouble(value));
+                    } else if (type == boolean.class) {
+                        method.invoke(model, Boolean.parseBoolean(value));
+                    } else if (type == String.class) {
+                        method.invoke(model, value);
+                    } else {
+                        continue;
+                    }
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalArgumentException("Cannot set parameter " + name, e);
+                }
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Unknown parameter " + name);
+    }
+
+    /**
+     * Sets the listener called after every tick
+     * @param listener, the listener, null for none
+     */
+    public void setTickListener(TickListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Builds the model and runs all the ticks, or until the model can stop early (see StopWindow)
+     * @throws IOException if the series cannot be written
+     */
+    public void run() throws IOException {
+        model.setHeadless(true);
+        model.setup();
+        model.buildModel();
+        model.buildSchedule();
+
+        BufferedWriter out = null;
+        if (outputFile != null) {
+            out = new BufferedWriter(new FileWriter(outputFile));
+            out.write("tick,rabbits,grass,births,deaths");
+            out.newLine();
+        }
+        try {
+            RabbitsGrassSimulationSpace rgSpace = model.getSpace();
+            long start = System.nanoTime();
+            ticksRun = 0;
+            for (int tick = 1; tick <= ticks && model.getStopReason() == null; tick++) {
+                model.runTick();
+                if (out != null) {
+                    out.write(model.getTick() + "," + rgSpace.getTotalRabbits() + "," + rgSpace.getTotalGrass() + ","
+                            + model.getLastBirths() + "," + model.getLastDeaths());
+                    out.newLine();
+                }
+                if (listener != null) {
+                    listener.tick(tick, model);
+                }
+                ticksRun = tick;
+            }
+            long elapsed = System.nanoTime() - start;
+            ticksPerSecond = ticksRun / (Math.max(elapsed, 1) / 1e9);
+        } finally {
+            model.finish();
+            RabbitsGrassLog.flush();
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Getter for the number of ticks of the last run
+     * @return ticksRun, below the number of ticks if the run stopped early
+     */
+    public int getTicksRun() {
+        return ticksRun;
+    }
+
+    /**
+     * Getter for the speed of the last run
+     * @return the number of ticks per second
+     */
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+}
@@ -0,0 +1,358 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Class that benchmarks the hot paths of the rabbits grass simulation, headless, over a range of grid sizes
+ * and rabbit densities: the step of an agent, spreadGrass, addAgent, the running totals and a whole model tick.
+ *
+ * Every benchmark is run in this JVM for a few warmup iterations, then measured for a few more. For each
+ * case it reports the throughput (mean and standard deviation over the measured iterations), the bytes
+ * allocated per operation by the benchmark thread, and the collections that happened while measuring.
+ * Results are accumulated in a sink printed at the end, so that the JIT cannot drop the measured code.
+ * Usage: MainRabbit --bench [output file] [Option=values ...], see main for the options.
+ * @author
+ */
+public class RabbitsGrassBenchmark {
+
+    /**
+     * A benchmark case, prepared once and then run for many operations
+     */
+    interface Case {
+        /**
+         * Runs a number of operations
+         * @param operations, the number of operations
+         * @return a value depending on the operations, for the sink
+         */
+        long run(int operations);
+    }
+
+    private static final String[] ALL = { "agentStep", "spreadGrass", "addAgent", "totals", "tick" };
+
+    private int[] sizes = { 20, 64, 256, 1024, 4096 };
+    private double[] densities = { 0.01, 0.1, 0.5 };
+    private String[] benchmarks = ALL;
+    private int growthMode = RabbitsGrassGrowth.SCATTER;
+    private int warmupIterations = 3;
+    private int iterations = 5;
+    private long iterationNanos = 500000000L;
+    private long seed = 42;
+
+    private final com.sun.management.ThreadMXBean threads;
+    private long sink;
+
+    //Written after every read of the totals: the volatile store keeps the JIT from hoisting the reads out of the loop
+    private volatile long blackhole;
+
+    /**
+     * Class constructor
+     */
+    public RabbitsGrassBenchmark() {
+        com.sun.management.ThreadMXBean bean = null;
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            } else {
+                bean = null;
+            }
+        }
+        threads = bean;
+    }
+
+    /**
+     * Main function
+     * @param args, an optional CSV output file, then Option=values pairs: Sizes=20,256 Densities=0.1,0.5
+     * Benchmarks=agentStep,tick GrowthMode=1 Warmup=3 Iterations=5 IterationMs=500 Seed=42
+     */
+    public static void main(String[] args) throws IOException {
+        RabbitsGrassBenchmark bench = new RabbitsGrassBenchmark();
+        String output = null;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                output = arg;
+                continue;
+            }
+            String name = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            if (name.equals("Sizes")) {
+                String[] parts = value.split(",");
+                bench.sizes = new int[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    bench.sizes[i] = Integer.parseInt(parts[i].trim());
+                }
+            } else if (name.equals("Densities")) {
+                String[] parts = value.split(",");
+                bench.densities = new double[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    bench.densities[i] = Double.parseDouble(parts[i].trim());
+                }
+            } else if (name.equals("Benchmarks")) {
+                bench.benchmarks = value.split(",");
+            } else if (name.equals("GrowthMode")) {
+                bench.growthMode = Integer.parseInt(value);
+            } else if (name.equals("Warmup")) {
+                bench.warmupIterations = Integer.parseInt(value);
+            } else if (name.equals("Iterations")) {
+                bench.iterations = Math.max(1, Integer.parseInt(value));
+            } else if (name.equals("IterationMs")) {
+                bench.iterationNanos = Long.parseLong(value) * 1000000L;
+            } else if (name.equals("Seed")) {
+                bench.seed = Long.parseLong(value);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + name);
+            }
+        }
+        bench.run(output);
+    }
+
+    /**
+     * Runs every benchmark for every size and density
+     * @param output, the CSV file to write, null for none
+     * @throws IOException if the CSV file cannot be written
+     */
+    public void run(String output) throws IOException {
+        BufferedWriter out = null;
+        if (output != null) {
+            out = new BufferedWriter(new FileWriter(output));
+            out.write("benchmark,size,density,ops_per_s,ops_per_s_error,bytes_per_op,gc_count,gc_ms");
+            out.newLine();
+        }
+        System.out.println(String.format("%-12s %6s %8s %16s %14s %14s %6s %8s",
+                "benchmark", "size", "density", "ops/s", "+-", "bytes/op", "gc", "gc ms"));
+        try {
+            for (String benchmark : benchmarks) {
+                for (int size : sizes) {
+                    for (double density : densities) {
+                        String line = measure(benchmark.trim(), size, density);
+                        if (out != null) {
+                            out.write(line);
+                            out.newLine();
+                            out.flush();
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+        System.out.println("sink " + sink);
+    }
+
+    /**
+     * Prepares a benchmark case
+     * @param benchmark, the name of the benchmark
+     * @param size, the size of the grid
+     * @param density, the fraction of the cells holding a rabbit
+     * @return the case
+     */
+    private Case prepare(String benchmark, final int size, double density) {
+        final int rabbits = (int) Math.round(density * size * size);
+        if (benchmark.equals("tick")) {
+            final RabbitsGrassSimulationModel model = new RabbitsGrassSimulationModel();
+            model.setHeadless(true);
+            model.setLogLevel(RabbitsGrassLog.ERROR);
+            model.setup();
+            model.setGridSize(size);
+            model.setNumInitRabbits(rabbits);
+            model.setNumInitGrass(size * size);
+            model.setGrassGrowthRate(Math.max(1, size * size / 10));
+            model.setGrassGrowthMode(growthMode);
+            model.setSeed(seed);
+            model.buildModel();
+            model.buildSchedule();
+            return new Case() {
+                public long run(int operations) {
+                    long s = 0;
+                    for (int i = 0; i < operations; i++) {
+                        model.runTick();
+                        s += model.getLastBirths();
+                    }
+                    return s;
+                }
+            };
+        }
+        final RabbitsGrassSimulationSpace space = new RabbitsGrassSimulationSpace(size, new SplittableRandom(seed));
+        space.setGrowthMode(growthMode);
+        final List<RabbitsGrassSimulationAgent> agents = new ArrayList<RabbitsGrassSimulationAgent>();
+        for (int i = 0; i < rabbits; i++) {
+            //Rabbits never starve during a benchmark
+            RabbitsGrassSimulationAgent a = new RabbitsGrassSimulationAgent(1 << 30, i);
+            if (space.addAgent(a)) {
+                agents.add(a);
+            }
+        }
+        if (benchmark.equals("agentStep")) {
+            if (agents.isEmpty()) {
+                return null;
+            }
+            return new Case() {
+                int next;
+
+                public long run(int operations) {
+                    long s = 0;
+                    for (int i = 0; i < operations; i++) {
+                        if (agents.get(next).step(1, 0, Integer.MAX_VALUE)) {
+                            s++;
+                        }
+                        if (++next == agents.size()) {
+                            next = 0;
+                        }
+                    }
+                    //Give the eaten grass back, so that the agents keep finding some
+                    space.spreadGrass(operations);
+                    return s;
+                }
+            };
+        }
+        if (benchmark.equals("spreadGrass")) {
+            final int amount = size * size;
+            return new Case() {
+                public long run(int operations) {
+                    for (int i = 0; i < operations; i++) {
+                        space.spreadGrass(amount);
+                    }
+                    if (space.getTotalGrass() > Integer.MAX_VALUE / 2) {
+                        //Keep the totals far from overflowing
+                        space.restoreGrass(new int[size * size]);
+                    }
+                    return space.getTotalGrass();
+                }
+            };
+        }
+        if (benchmark.equals("addAgent")) {
+            if (rabbits >= size * size) {
+                return null;
+            }
+            return new Case() {
+                int id = rabbits;
+
+                public long run(int operations) {
+                    long s = 0;
+                    for (int i = 0; i < operations; i++) {
+                        RabbitsGrassSimulationAgent a = new RabbitsGrassSimulationAgent(1, id++);
+                        if (space.addAgent(a)) {
+                            s += a.getX();
+                            space.removeAgentAt(a.getX(), a.getY());
+                        }
+                    }
+                    return s;
+                }
+            };
+        }
+        if (benchmark.equals("totals")) {
+            space.spreadGrass(size * size);
+            return new Case() {
+                public long run(int operations) {
+                    for (int i = 0; i < operations; i++) {
+                        blackhole = space.getTotalGrass() + space.getTotalRabbits();
+                    }
+                    return blackhole;
+                }
+            };
+        }
+        throw new IllegalArgumentException("Unknown benchmark " + benchmark);
+    }
+
+    /**
+     * Measures one case and prints its result
+     * @param benchmark, the name of the benchmark
+     * @param size, the size of the grid
+     * @param density, the fraction of the cells holding a rabbit
+     * @return the CSV line of the result
+     */
+    private String measure(String benchmark, int size, double density) {
+        Case c = prepare(benchmark, size, density);
+        if (c == null) {
+            return benchmark + "," + size + "," + density + ",,,,,";
+        }
+        //Grow the batch until a batch takes about a millisecond, so that timing calls are negligible
+        int batch = 1;
+        while (true) {
+            long start = System.nanoTime();
+            sink += c.run(batch);
+            if (System.nanoTime() - start > 1000000L || batch >= 1 << 24) {
+                break;
+            }
+            batch *= 2;
+        }
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(c, batch);
+        }
+        double[] rates = new double[iterations];
+        long operations = 0;
+        long bytes = 0;
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        for (int i = 0; i < iterations; i++) {
+            long before = allocatedBytes();
+            long[] result = iteration(c, batch);
+            bytes += allocatedBytes() - before;
+            operations += result[0];
+            rates[i] = result[0] / (result[1] / 1e9);
+        }
+        gcCount = gcCount() - gcCount;
+        gcMillis = gcMillis() - gcMillis;
+        double mean = 0;
+        for (double r : rates) {
+            mean += r;
+        }
+        mean /= iterations;
+        double variance = 0;
+        for (double r : rates) {
+            variance += (r - mean) * (r - mean);
+        }
+        double error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+        String bytesPerOp = threads == null ? "" : String.format("%.1f", (double) bytes / operations);
+        System.out.println(String.format("%-12s %6d %8.3f %16.1f %14.1f %14s %6d %8d",
+                benchmark, size, density, mean, error, bytesPerOp.length() == 0 ? "n/a" : bytesPerOp, gcCount, gcMillis));
+        return benchmark + "," + size + "," + density + "," + String.format("%.1f,%.1f", mean, error) + ","
+                + bytesPerOp + "," + gcCount + "," + gcMillis;
+    }
+
+    /**
+     * Runs batches until the iteration time is over
+     * @param c, the case
+     * @param batch, the number of operations of a batch
+     * @return the number of operations and the elapsed nanoseconds
+     */
+    private long[] iteration(Case c, int batch) {
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink += c.run(batch);
+            operations += batch;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        return new long[] { operations, elapsed };
+    }
+
+    private long allocatedBytes() {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+}
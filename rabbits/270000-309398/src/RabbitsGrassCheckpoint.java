@@ -0,0 +1,223 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Class that holds a snapshot of the whole rabbits grass simulation: its parameters, tick, grass,
+ * rabbits and random generator. It is captured by RabbitsGrassSimulationModel.checkpoint() and written
+ * to a compressed binary file, from which a run continues exactly as the original one did.
+ *
+ * The random generator state cannot be read from a SplittableRandom, so when a snapshot is captured
+ * the model reseeds its generator with a seed drawn from it, and the snapshot stores that seed.
+ * @author
+ */
+public class RabbitsGrassCheckpoint {
+
+    private static final int MAGIC = 0x52474350; // "RGCP"
+    private static final int VERSION = 1;
+
+    //Parameters
+    int gridSize;
+    int numInitRabbits;
+    int numInitGrass;
+    int grassGrowthRate;
+    int birthThreshold;
+    int numInitEnergy;
+    int energyPerGrass;
+    int lossReproduction;
+    boolean compactPopulation;
+    long seed;
+    int stepTiles;
+    int grassGrowthMode;
+    int foragingRadius;
+    boolean synchronousStep;
+    boolean sparseWorld;
+
+    //Progress
+    long tick;
+    int IDNumber;
+    long randomSeed;
+
+    //Grass of every cell, row-major, for a dense space
+    int[] grass;
+
+    //Grass of the chunks holding grass, for a sparse space
+    int[] chunkXs;
+    int[] chunkYs;
+    int[][] chunkGrass;
+
+    //Rabbits, in stepping order
+    int rabbits;
+    int[] ids;
+    int[] xs;
+    int[] ys;
+    int[] energies;
+
+    /**
+     * Allocates the rabbit arrays
+     * @param count, the number of rabbits
+     */
+    void allocateRabbits(int count) {
+        rabbits = count;
+        ids = new int[count];
+        xs = new int[count];
+        ys = new int[count];
+        energies = new int[count];
+    }
+
+    /**
+     * Allocates the chunk arrays of a sparse space
+     * @param count, the number of chunks
+     */
+    void allocateChunks(int count) {
+        chunkXs = new int[count];
+        chunkYs = new int[count];
+        chunkGrass = new int[count][];
+    }
+
+    /**
+     * Getter for the tick of the snapshot
+     * @return tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Writes the snapshot to a file, through a temporary file so that an interrupted write
+     * never replaces a good snapshot
+     * @param fileName, the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String fileName) throws IOException {
+        File target = new File(fileName);
+        File temporary = new File(fileName + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new DeflaterOutputStream(new FileOutputStream(temporary), new Deflater(Deflater.BEST_SPEED)), 1 << 16));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(gridSize);
+            out.writeInt(numInitRabbits);
+            out.writeInt(numInitGrass);
+            out.writeInt(grassGrowthRate);
+            out.writeInt(birthThreshold);
+            out.writeInt(numInitEnergy);
+            out.writeInt(energyPerGrass);
+            out.writeInt(lossReproduction);
+            out.writeBoolean(compactPopulation);
+            out.writeLong(seed);
+            out.writeInt(stepTiles);
+            out.writeInt(grassGrowthMode);
+            out.writeInt(foragingRadius);
+            out.writeBoolean(synchronousStep);
+            out.writeBoolean(sparseWorld);
+            out.writeLong(tick);
+            out.writeInt(IDNumber);
+            out.writeLong(randomSeed);
+            if (sparseWorld) {
+                out.writeInt(chunkGrass.length);
+                for (int i = 0; i < chunkGrass.length; i++) {
+                    out.writeInt(chunkXs[i]);
+                    out.writeInt(chunkYs[i]);
+                    for (int g : chunkGrass[i]) {
+                        out.writeInt(g);
+                    }
+                }
+            } else {
+                out.writeInt(grass.length);
+                for (int g : grass) {
+                    out.writeInt(g);
+                }
+            }
+            out.writeInt(rabbits);
+            for (int i = 0; i < rabbits; i++) {
+                out.writeInt(ids[i]);
+                out.writeInt(xs[i]);
+                out.writeInt(ys[i]);
+                out.writeInt(energies[i]);
+            }
+        } finally {
+            out.close();
+        }
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Cannot replace " + fileName);
+        }
+        if (!temporary.renameTo(target)) {
+            throw new IOException("Cannot rename " + temporary + " to " + fileName);
+        }
+    }
+
+    /**
+     * Reads a snapshot from a file
+     * @param fileName, the file to read
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static RabbitsGrassCheckpoint read(String fileName) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(new FileInputStream(fileName)), 1 << 16));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(fileName + " is not a rabbits grass checkpoint");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(fileName + " is a checkpoint of unknown version " + version);
+            }
+            RabbitsGrassCheckpoint c = new RabbitsGrassCheckpoint();
+            c.gridSize = in.readInt();
+            c.numInitRabbits = in.readInt();
+            c.numInitGrass = in.readInt();
+            c.grassGrowthRate = in.readInt();
+            c.birthThreshold = in.readInt();
+            c.numInitEnergy = in.readInt();
+            c.energyPerGrass = in.readInt();
+            c.lossReproduction = in.readInt();
+            c.compactPopulation = in.readBoolean();
+            c.seed = in.readLong();
+            c.stepTiles = in.readInt();
+            c.grassGrowthMode = in.readInt();
+            c.foragingRadius = in.readInt();
+            c.synchronousStep = in.readBoolean();
+            c.sparseWorld = in.readBoolean();
+            c.tick = in.readLong();
+            c.IDNumber = in.readInt();
+            c.randomSeed = in.readLong();
+            if (c.sparseWorld) {
+                c.allocateChunks(in.readInt());
+                for (int i = 0; i < c.chunkGrass.length; i++) {
+                    c.chunkXs[i] = in.readInt();
+                    c.chunkYs[i] = in.readInt();
+                    c.chunkGrass[i] = new int[RabbitsGrassChunkedWorld.CHUNK_SIZE * RabbitsGrassChunkedWorld.CHUNK_SIZE];
+                    for (int k = 0; k < c.chunkGrass[i].length; k++) {
+                        c.chunkGrass[i][k] = in.readInt();
+                    }
+                }
+            } else {
+                c.grass = new int[in.readInt()];
+                for (int i = 0; i < c.grass.length; i++) {
+                    c.grass[i] = in.readInt();
+                }
+            }
+            c.allocateRabbits(in.readInt());
+            for (int i = 0; i < c.rabbits; i++) {
+                c.ids[i] = in.readInt();
+                c.xs[i] = in.readInt();
+                c.ys[i] = in.readInt();
+                c.energies[i] = in.readInt();
+            }
+            return c;
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.awt.Color;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import uchicago.src.sim.gui.Drawable;
+import uchicago.src.sim.gui.SimGraphics;
+
+/**
+ * Adapter that exposes one layer of a RabbitsGrassChunkedWorld as a grid, so that it can be drawn by an
+ * Object2DDisplay and probed from the GUI. Values are read from the world directly and the view stores
+ * nothing, whatever the size of the world. The display draws the layer from getObjectList(), which only
+ * holds the cells of the allocated chunks, instead of visiting every cell of the world.
+ * @author
+ */
+public class RabbitsGrassChunkedDisplay extends RabbitsGrassGridView {
+
+    public static final int GRASS = 0;
+    public static final int RABBITS = 1;
+
+    private final RabbitsGrassChunkedWorld world;
+    private final int layer;
+
+    /**
+     * Class constructor
+     * @param world, the world to display
+     * @param layer, GRASS or RABBITS
+     */
+    public RabbitsGrassChunkedDisplay(RabbitsGrassChunkedWorld world, int layer) {
+        super(world.getSizeX(), world.getSizeY());
+        this.world = world;
+        this.layer = layer;
+    }
+
+    /**
+     * Returns the non-empty cells of the layer as Drawables, to be given to Object2DDisplay.setObjectList
+     * The cells are collected from the allocated chunks each time the collection is iterated
+     * @return the live collection of the cells
+     */
+    public Collection<Drawable> getObjectList() {
+        return new AbstractCollection<Drawable>() {
+            public int size() {
+                return cells().size();
+            }
+
+            public Iterator<Drawable> iterator() {
+                return cells().iterator();
+            }
+        };
+    }
+
+    private List<Drawable> cells() {
+        final List<Drawable> cells = new ArrayList<Drawable>();
+        world.forEachCell(new RabbitsGrassChunkedWorld.CellVisitor() {
+            public void visit(int x, int y, int grass, Object agent) {
+                if (layer == GRASS && grass > 0) {
+                    cells.add(new GrassView(x, y, grass));
+                } else if (layer == RABBITS && agent != null) {
+                    cells.add((Drawable) agent);
+                }
+            }
+        });
+        return cells;
+    }
+
+    public Object getObjectAt(int x, int y) {
+        if (layer == GRASS) {
+            return Integer.valueOf(world.getGrass(x, y));
+        }
+        return world.getAgent(x, y);
+    }
+
+    public double getValueAt(int x, int y) {
+        if (layer == GRASS) {
+            return world.getGrass(x, y);
+        }
+        return world.getAgent(x, y) == null ? 0 : 1;
+    }
+
+    /**
+     * Drawable of a cell holding grass, in the colors of the dense grass display
+     */
+    static class GrassView implements Drawable {
+
+        private final int x;
+        private final int y;
+        private final Color color;
+
+        GrassView(int x, int y, int grass) {
+            this.x = x;
+            this.y = y;
+            color = new Color(0, Math.max(160 - Math.min(grass, 15) * 10, 60), 0);
+        }
+
+        public void draw(SimGraphics arg0) {
+            arg0.drawFastRoundRect(color);
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+    }
+}
@@ -0,0 +1,553 @@
+/**
+ * Class that stores the grass and the rabbits of a huge, mostly empty simulation space.
+ * The space is cut in chunks of 64x64 cells, which are only allocated when grass or a rabbit appears in them
+ * and are released as soon as they hold neither. Chunks are found through an open-addressing hash table
+ * keyed by their chunk coordinates. Coordinates wrap around, as the space is a torus.
+ * @author
+ */
+public class RabbitsGrassChunkedWorld {
+
+    public static final int CHUNK_BITS = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+
+    /**
+     * A 64x64 block of cells, row-major
+     * Its grass and agent layers are allocated separately, the first time they are written
+     */
+    static final class Chunk {
+
+        final int chunkX;
+        final int chunkY;
+        int[] grass;
+        Object[] agents;
+        //Grass and rabbits of the chunk, the chunk is released when both are 0
+        int grassTotal;
+        int rabbits;
+
+        Chunk(int chunkX, int chunkY) {
+            this.chunkX = chunkX;
+            this.chunkY = chunkY;
+        }
+
+        boolean isEmpty() {
+            return grassTotal == 0 && rabbits == 0;
+        }
+    }
+
+    private final int sizeX;
+    private final int sizeY;
+
+    //Hash table of the chunks, linear probing, its length is a power of 2
+    private long[] keys;
+    private Chunk[] chunks;
+    private int chunkCount;
+
+    //Last chunk found, most lookups in a row are in the same chunk
+    private Chunk lastChunk;
+
+    //Released layers, all zeros or nulls, reused by the next chunks instead of being reallocated
+    private static final int POOL_SIZE = 64;
+    private final int[][] grassPool = new int[POOL_SIZE][];
+    private int grassPooled;
+    private final Object[][] agentPool = new Object[POOL_SIZE][];
+    private int agentsPooled;
+
+    /**
+     * Class constructor, every chunk starts empty
+     * @param sizeX, width of the space
+     * @param sizeY, height of the space
+     */
+    public RabbitsGrassChunkedWorld(int sizeX, int sizeY) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        keys = new long[16];
+        chunks = new Chunk[16];
+    }
+
+    /**
+     * Getter for the width of the space
+     * @return sizeX
+     */
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    /**
+     * Getter for the height of the space
+     * @return sizeY
+     */
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    /**
+     * Returns the number of allocated chunks
+     * @return chunkCount
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    private int wrapX(int x) {
+        if (x < 0 || x >= sizeX) {
+            x = Math.floorMod(x, sizeX);
+        }
+        return x;
+    }
+
+    private int wrapY(int y) {
+        if (y < 0 || y >= sizeY) {
+            y = Math.floorMod(y, sizeY);
+        }
+        return y;
+    }
+
+    private static long key(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 40) & (keys.length - 1);
+    }
+
+    /**
+     * Finds the chunk of a cell
+     * @param x, the x position of the cell, wrapped
+     * @param y, the y position of the cell, wrapped
+     * @param create, true to allocate the chunk if it does not exist
+     * @return the chunk, null if it does not exist and create is false
+     */
+    private Chunk chunk(int x, int y, boolean create) {
+        int chunkX = x >>> CHUNK_BITS;
+        int chunkY = y >>> CHUNK_BITS;
+        Chunk last = lastChunk;
+        if (last != null && last.chunkX == chunkX && last.chunkY == chunkY) {
+            return last;
+        }
+        long key = key(chunkX, chunkY);
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (chunks[i] != null) {
+            if (keys[i] == key) {
+                lastChunk = chunks[i];
+                return chunks[i];
+            }
+            i = (i + 1) & mask;
+        }
+        if (!create) {
+            return null;
+        }
+        Chunk c = new Chunk(chunkX, chunkY);
+        keys[i] = key;
+        chunks[i] = c;
+        if (++chunkCount * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        lastChunk = c;
+        return c;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Chunk[] oldChunks = chunks;
+        keys = new long[capacity];
+        chunks = new Chunk[capacity];
+        for (int j = 0; j < oldChunks.length; j++) {
+            if (oldChunks[j] != null) {
+                int i = slot(oldKeys[j]);
+                while (chunks[i] != null) {
+                    i = (i + 1) & (capacity - 1);
+                }
+                keys[i] = oldKeys[j];
+                chunks[i] = oldChunks[j];
+            }
+        }
+    }
+
+    /**
+     * Releases a chunk that holds neither grass nor rabbits
+     * Linear probing has no tombstones: the entries following the removed one are shifted back
+     * @param c, the chunk
+     */
+    private void release(Chunk c) {
+        int mask = keys.length - 1;
+        int i = slot(key(c.chunkX, c.chunkY));
+        while (chunks[i] != c) {
+            i = (i + 1) & mask;
+        }
+        chunks[i] = null;
+        int hole = i;
+        for (int j = (i + 1) & mask; chunks[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            //Move the entry into the hole unless its home lies cyclically in (hole, j]
+            boolean reachable = hole <= j ? (home > hole && home <= j) : (home > hole || home <= j);
+            if (!reachable) {
+                keys[hole] = keys[j];
+                chunks[hole] = chunks[j];
+                chunks[j] = null;
+                hole = j;
+            }
+        }
+        chunkCount--;
+        if (lastChunk == c) {
+            lastChunk = null;
+        }
+    }
+
+    private int[] newGrassLayer() {
+        return grassPooled > 0 ? grassPool[--grassPooled] : new int[CHUNK_CELLS];
+    }
+
+    private Object[] newAgentLayer() {
+        return agentsPooled > 0 ? agentPool[--agentsPooled] : new Object[CHUNK_CELLS];
+    }
+
+    private void recycle(Chunk c) {
+        if (c.grass != null && c.grassTotal == 0) {
+            if (grassPooled < POOL_SIZE) {
+                grassPool[grassPooled++] = c.grass;
+            }
+            c.grass = null;
+        }
+        if (c.agents != null && c.rabbits == 0) {
+            if (agentsPooled < POOL_SIZE) {
+                agentPool[agentsPooled++] = c.agents;
+            }
+            c.agents = null;
+        }
+    }
+
+    private static int cellOf(int x, int y) {
+        return ((y & CHUNK_MASK) << CHUNK_BITS) | (x & CHUNK_MASK);
+    }
+
+    /**
+     * Returns the grass in a cell
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @return the grass in the cell
+     */
+    public int getGrass(int x, int y) {
+        x = wrapX(x);
+        y = wrapY(y);
+        Chunk c = chunk(x, y, false);
+        return c == null || c.grass == null ? 0 : c.grass[cellOf(x, y)];
+    }
+
+    /**
+     * Adds grass to a cell
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @param amount, the grass to add, positive
+     */
+    public void addGrass(int x, int y, int amount) {
+        if (amount <= 0) {
+            return;
+        }
+        x = wrapX(x);
+        y = wrapY(y);
+        Chunk c = chunk(x, y, true);
+        if (c.grass == null) {
+            c.grass = newGrassLayer();
+        }
+        c.grass[cellOf(x, y)] += amount;
+        c.grassTotal += amount;
+    }
+
+    /**
+     * Empties a cell
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @return the grass the cell contained
+     */
+    public int takeGrass(int x, int y) {
+        x = wrapX(x);
+        y = wrapY(y);
+        Chunk c = chunk(x, y, false);
+        if (c == null || c.grass == null) {
+            return 0;
+        }
+        int cell = cellOf(x, y);
+        int food = c.grass[cell];
+        c.grass[cell] = 0;
+        c.grassTotal -= food;
+        if (c.grassTotal == 0) {
+            //The grass layer is all zeros, drop it and the chunk too if it has no rabbit
+            recycle(c);
+            if (c.rabbits == 0) {
+                release(c);
+            }
+        }
+        return food;
+    }
+
+    /**
+     * Returns the agent in a cell
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @return the agent, null if the cell is empty
+     */
+    public Object getAgent(int x, int y) {
+        x = wrapX(x);
+        y = wrapY(y);
+        Chunk c = chunk(x, y, false);
+        return c == null || c.agents == null ? null : c.agents[cellOf(x, y)];
+    }
+
+    /**
+     * Puts an agent in a cell, or empties it
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @param agent, the agent, null to empty the cell
+     */
+    public void putAgent(int x, int y, Object agent) {
+        x = wrapX(x);
+        y = wrapY(y);
+        Chunk c = chunk(x, y, agent != null);
+        if (c == null || (c.agents == null && agent == null)) {
+            return;
+        }
+        if (c.agents == null) {
+            c.agents = newAgentLayer();
+        }
+        int cell = cellOf(x, y);
+        if (c.agents[cell] != null) {
+            c.rabbits--;
+        }
+        c.agents[cell] = agent;
+        if (agent != null) {
+            c.rabbits++;
+        } else if (c.rabbits == 0) {
+            recycle(c);
+            if (c.grassTotal == 0) {
+                release(c);
+            }
+        }
+    }
+
+    /**
+     * Counts the agents in the square of radius r around a cell, the cell included
+     * Only the allocated chunks overlapping the square are visited
+     * @param x, the x position of the center
+     * @param y, the y position of the center
+     * @param r, the radius, the square is 2r+1 cells wide (clamped to the size of the space)
+     * @return the number of agents
+     */
+    public int countAround(int x, int y, int r) {
+        int width = Math.min(2 * r + 1, sizeX);
+        int height = Math.min(2 * r + 1, sizeY);
+        int x0 = Math.floorMod(x - r, sizeX);
+        int y0 = Math.floorMod(y - r, sizeY);
+        int count = 0;
+        int j = 0;
+        while (j < height) {
+            int cy = (y0 + j) % sizeY;
+            //Rows of this chunk row inside the square, without crossing the edge of the space
+            int rows = Math.min(Math.min(CHUNK_SIZE - (cy & CHUNK_MASK), height - j), sizeY - cy);
+            int i = 0;
+            while (i < width) {
+                int cx = (x0 + i) % sizeX;
+                int columns = Math.min(Math.min(CHUNK_SIZE - (cx & CHUNK_MASK), width - i), sizeX - cx);
+                Chunk c = chunk(cx, cy, false);
+                if (c != null && c.rabbits > 0) {
+                    for (int dy = 0; dy < rows; dy++) {
+                        int base = cellOf(cx, cy + dy);
+                        for (int dx = 0; dx < columns; dx++) {
+                            if (c.agents[base + dx] != null) {
+                                count++;
+                            }
+                        }
+                    }
+                }
+                i += columns;
+            }
+            j += rows;
+        }
+        return count;
+    }
+
+    /**
+     * Counts the agents among the four neighbours of a cell (north, west, south and east)
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @return the number of neighbouring agents
+     */
+    public int countNeighbours(int x, int y) {
+        int count = 0;
+        if (getAgent(x + 1, y) != null) count++;
+        if (getAgent(x - 1, y) != null) count++;
+        if (getAgent(x, y + 1) != null) count++;
+        if (getAgent(x, y - 1) != null) count++;
+        return count;
+    }
+
+    /**
+     * Copies the content of the allocated chunks into row-major arrays covering the whole space
+     * @param grass, receives the grass of every cell, already zeroed
+     * @param agents, receives the agent of every cell, already cleared
+     */
+    public void copyTo(int[] grass, Object[] agents) {
+        for (Chunk c : chunks) {
+            if (c == null) {
+                continue;
+            }
+            int x0 = c.chunkX << CHUNK_BITS;
+            int y0 = c.chunkY << CHUNK_BITS;
+            int columns = Math.min(CHUNK_SIZE, sizeX - x0);
+            int rows = Math.min(CHUNK_SIZE, sizeY - y0);
+            for (int dy = 0; dy < rows; dy++) {
+                int from = dy << CHUNK_BITS;
+                int to = (y0 + dy) * sizeX + x0;
+                if (grass != null && c.grass != null) {
+                    System.arraycopy(c.grass, from, grass, to, columns);
+                }
+                if (agents != null && c.agents != null) {
+                    System.arraycopy(c.agents, from, agents, to, columns);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visitor of the non-empty cells of a world
+     */
+    public interface CellVisitor {
+
+        /**
+         * Visits a cell holding grass, an agent, or both
+         * @param x, the x position of the cell
+         * @param y, the y position of the cell
+         * @param grass, the grass in the cell
+         * @param agent, the agent in the cell, null if none
+         */
+        void visit(int x, int y, int grass, Object agent);
+    }
+
+    /**
+     * Visits the cells holding grass or an agent, chunk by chunk
+     * Only the allocated chunks are scanned, the cells of the other chunks are all empty
+     * @param visitor, the visitor
+     */
+    public void forEachCell(CellVisitor visitor) {
+        for (Chunk c : chunks) {
+            if (c == null) {
+                continue;
+            }
+            int x0 = c.chunkX << CHUNK_BITS;
+            int y0 = c.chunkY << CHUNK_BITS;
+            for (int cell = 0; cell < CHUNK_CELLS; cell++) {
+                int grass = c.grass == null ? 0 : c.grass[cell];
+                Object agent = c.agents == null ? null : c.agents[cell];
+                if (grass != 0 || agent != null) {
+                    visitor.visit(x0 + (cell & CHUNK_MASK), y0 + (cell >>> CHUNK_BITS), grass, agent);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of chunks holding grass
+     * @return the number of allocated grass layers
+     */
+    public int getGrassChunkCount() {
+        int count = 0;
+        for (Chunk c : chunks) {
+            if (c != null && c.grass != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies the grass layers of the chunks holding grass, e.g. for a snapshot
+     * @param chunkXs, receives the chunk x of every copied chunk, getGrassChunkCount() long
+     * @param chunkYs, receives the chunk y of every copied chunk, getGrassChunkCount() long
+     * @param grass, receives a copy of the 64x64 grass cells of every copied chunk, row-major
+     */
+    public void copyGrassChunks(int[] chunkXs, int[] chunkYs, int[][] grass) {
+        int i = 0;
+        for (Chunk c : chunks) {
+            if (c == null || c.grass == null) {
+                continue;
+            }
+            chunkXs[i] = c.chunkX;
+            chunkYs[i] = c.chunkY;
+            grass[i] = c.grass.clone();
+            i++;
+        }
+    }
+
+    /**
+     * Adds grass to every cell of a chunk, e.g. when a snapshot is restored
+     * @param chunkX, the chunk x, between 0 and (sizeX - 1) / 64
+     * @param chunkY, the chunk y, between 0 and (sizeY - 1) / 64
+     * @param grass, the 64x64 grass cells of the chunk, row-major
+     * @return the grass added
+     */
+    public int addGrassChunk(int chunkX, int chunkY, int[] grass) {
+        if (chunkX < 0 || chunkY < 0 || (long) chunkX << CHUNK_BITS >= sizeX || (long) chunkY << CHUNK_BITS >= sizeY
+                || grass.length != CHUNK_CELLS) {
+            throw new IllegalArgumentException("Chunk " + chunkX + ", " + chunkY + " does not fit a " + sizeX + "x" + sizeY + " space");
+        }
+        int total = 0;
+        for (int g : grass) {
+            total += g;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        Chunk c = chunk(chunkX << CHUNK_BITS, chunkY << CHUNK_BITS, true);
+        if (c.grass == null) {
+            c.grass = newGrassLayer();
+        }
+        for (int cell = 0; cell < CHUNK_CELLS; cell++) {
+            c.grass[cell] += grass[cell];
+        }
+        c.grassTotal += total;
+        return total;
+    }
+
+    /**
+     * Debug check: recounts the grass and the agents of every chunk and compares them with its counters
+     * @return the total grass and the number of agents, in that order
+     * @throws IllegalStateException if a chunk is out of sync, or empty but still allocated
+     */
+    public long[] scan() {
+        long grassTotal = 0;
+        long rabbits = 0;
+        int found = 0;
+        for (Chunk c : chunks) {
+            if (c == null) {
+                continue;
+            }
+            found++;
+            int chunkGrass = 0;
+            int chunkRabbits = 0;
+            for (int cell = 0; cell < CHUNK_CELLS; cell++) {
+                if (c.grass != null) {
+                    chunkGrass += c.grass[cell];
+                }
+                if (c.agents != null && c.agents[cell] != null) {
+                    chunkRabbits++;
+                }
+            }
+            if (chunkGrass != c.grassTotal || chunkRabbits != c.rabbits) {
+                throw new IllegalStateException("Chunk " + c.chunkX + ", " + c.chunkY + " out of sync: grass " + c.grassTotal
+                        + " (scanned " + chunkGrass + "), rabbits " + c.rabbits + " (scanned " + chunkRabbits + ")");
+            }
+            if (c.isEmpty()) {
+                throw new IllegalStateException("Chunk " + c.chunkX + ", " + c.chunkY + " is empty but was not released");
+            }
+            grassTotal += chunkGrass;
+            rabbits += chunkRabbits;
+        }
+        if (found != chunkCount) {
+            throw new IllegalStateException("Chunk count out of sync: " + chunkCount + " (found " + found + ")");
+        }
+        return new long[] { grassTotal, rabbits };
+    }
+}
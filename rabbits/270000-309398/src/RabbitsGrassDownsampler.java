@@ -0,0 +1,153 @@
+/**
+ * Class that keeps a bounded summary of an ever growing series of points, for plotting.
+ * The most recent points are kept at full resolution. Older points are summarized in min/max buckets: each
+ * bucket keeps the lowest and the highest point of a run of consecutive points, so that peaks and troughs
+ * are never lost. When every bucket is used, pairs of adjacent buckets are merged and buckets cover twice
+ * as many points: memory and plotting cost stay bounded however long the series gets.
+ * @author
+ */
+public class RabbitsGrassDownsampler {
+
+    //Most recent points, as a ring buffer
+    private final double[] recentX;
+    private final double[] recentY;
+    private int recentStart;
+    private int recentSize;
+
+    //Buckets of the older points, oldest first
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] maxX;
+    private final double[] maxY;
+    private final long[] count;
+    private int buckets;
+    private long width = 1;
+
+    /**
+     * Class constructor
+     * @param maxBuckets, the number of buckets of the older points, at least 2
+     * @param recent, the number of recent points kept at full resolution, at least 1
+     */
+    public RabbitsGrassDownsampler(int maxBuckets, int recent) {
+        int b = Math.max(maxBuckets, 2);
+        int r = Math.max(recent, 1);
+        recentX = new double[r];
+        recentY = new double[r];
+        minX = new double[b];
+        minY = new double[b];
+        maxX = new double[b];
+        maxY = new double[b];
+        count = new long[b];
+    }
+
+    /**
+     * Returns the largest number of points points() can return
+     * @return the capacity of the arrays to pass to points()
+     */
+    public int capacity() {
+        return 2 * minX.length + recentX.length;
+    }
+
+    /**
+     * Adds a point at the end of the series
+     * @param x, the x value of the point, not below the x value of the previous point
+     * @param y, the y value of the point
+     */
+    public void add(double x, double y) {
+        if (recentSize == recentX.length) {
+            archive(recentX[recentStart], recentY[recentStart]);
+            recentX[recentStart] = x;
+            recentY[recentStart] = y;
+            recentStart = recentStart + 1 == recentX.length ? 0 : recentStart + 1;
+            return;
+        }
+        int i = (recentStart + recentSize) % recentX.length;
+        recentX[i] = x;
+        recentY[i] = y;
+        recentSize++;
+    }
+
+    /**
+     * Adds a point leaving the recent window to the buckets
+     */
+    private void archive(double x, double y) {
+        if (buckets == minX.length && count[buckets - 1] == width) {
+            mergePairs();
+        }
+        if (buckets == 0 || count[buckets - 1] == width) {
+            int b = buckets++;
+            minX[b] = x;
+            minY[b] = y;
+            maxX[b] = x;
+            maxY[b] = y;
+            count[b] = 1;
+            return;
+        }
+        int b = buckets - 1;
+        if (y < minY[b]) {
+            minX[b] = x;
+            minY[b] = y;
+        }
+        if (y > maxY[b]) {
+            maxX[b] = x;
+            maxY[b] = y;
+        }
+        count[b]++;
+    }
+
+    /**
+     * Merges every pair of adjacent buckets, doubling the number of points a bucket covers
+     */
+    private void mergePairs() {
+        int merged = 0;
+        for (int b = 0; b < buckets; b += 2) {
+            minX[merged] = minX[b];
+            minY[merged] = minY[b];
+            maxX[merged] = maxX[b];
+            maxY[merged] = maxY[b];
+            count[merged] = count[b];
+            if (b + 1 < buckets) {
+                if (minY[b + 1] < minY[merged]) {
+                    minX[merged] = minX[b + 1];
+                    minY[merged] = minY[b + 1];
+                }
+                if (maxY[b + 1] > maxY[merged]) {
+                    maxX[merged] = maxX[b + 1];
+                    maxY[merged] = maxY[b + 1];
+                }
+                count[merged] += count[b + 1];
+            }
+            merged++;
+        }
+        buckets = merged;
+        width *= 2;
+    }
+
+    /**
+     * Copies the points to plot, in x order: the lowest and highest point of every bucket, then the recent points
+     * @param xs, receives the x values, of length capacity() at least
+     * @param ys, receives the y values, of length capacity() at least
+     * @return the number of points copied
+     */
+    public int points(double[] xs, double[] ys) {
+        int n = 0;
+        for (int b = 0; b < buckets; b++) {
+            boolean minFirst = minX[b] <= maxX[b];
+            xs[n] = minFirst ? minX[b] : maxX[b];
+            ys[n] = minFirst ? minY[b] : maxY[b];
+            n++;
+            if (minX[b] != maxX[b]) {
+                xs[n] = minFirst ? maxX[b] : minX[b];
+                ys[n] = minFirst ? maxY[b] : minY[b];
+                n++;
+            }
+        }
+        for (int i = 0; i < recentSize; i++) {
+            int j = (recentStart + i) % recentX.length;
+            xs[n] = recentX[j];
+            ys[n] = recentY[j];
+            n++;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,164 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+/**
+ * Class that keeps per-tick statistics of the rabbits and the grass over a set of replicas: count, mean and
+ * sum of squared deviations, updated online (Welford) so that trajectories are never stored.
+ * A replica is recorded into its own ensemble while it runs, and merged into the ensemble of its parameter
+ * combination when it ends (Chan et al. parallel merge), so memory is O(ticks) whatever the number of replicas.
+ * Ticks are numbered from 1; a replica that stops early simply contributes to fewer ticks.
+ * @author
+ */
+public class RabbitsGrassEnsemble {
+
+    public static final int RABBITS = 0;
+    public static final int GRASS = 1;
+    private static final int METRICS = 2;
+
+    //Two-sided 95% quantiles of Student's t distribution, for 1 to 30 degrees of freedom
+    private static final double[] T95 = { 12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042 };
+
+    private final int ticks;
+    private final long[] count;
+    private final double[][] mean;
+    private final double[][] m2;
+
+    /**
+     * Class constructor, every tick starts without any replica
+     * @param ticks, the number of ticks of the replicas
+     */
+    public RabbitsGrassEnsemble(int ticks) {
+        this.ticks = ticks;
+        count = new long[ticks + 1];
+        mean = new double[METRICS][ticks + 1];
+        m2 = new double[METRICS][ticks + 1];
+    }
+
+    /**
+     * Getter for the number of ticks
+     * @return ticks
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Adds the values of one replica at a tick
+     * @param tick, the tick, between 1 and ticks
+     * @param rabbits, the number of rabbits
+     * @param grass, the total grass
+     */
+    public void add(int tick, double rabbits, double grass) {
+        long n = ++count[tick];
+        update(RABBITS, tick, n, rabbits);
+        update(GRASS, tick, n, grass);
+    }
+
+    private void update(int metric, int tick, long n, double value) {
+        double delta = value - mean[metric][tick];
+        mean[metric][tick] += delta / n;
+        m2[metric][tick] += delta * (value - mean[metric][tick]);
+    }
+
+    /**
+     * Merges the statistics of other replicas into this ensemble
+     * @param other, the ensemble to merge, with the same number of ticks
+     */
+    public void merge(RabbitsGrassEnsemble other) {
+        if (other.ticks != ticks) {
+            throw new IllegalArgumentException("Cannot merge " + other.ticks + " ticks into " + ticks);
+        }
+        for (int tick = 1; tick <= ticks; tick++) {
+            long nb = other.count[tick];
+            if (nb == 0) {
+                continue;
+            }
+            long na = count[tick];
+            long n = na + nb;
+            for (int metric = 0; metric < METRICS; metric++) {
+                double delta = other.mean[metric][tick] - mean[metric][tick];
+                mean[metric][tick] += delta * nb / n;
+                m2[metric][tick] += other.m2[metric][tick] + delta * delta * ((double) na * nb / n);
+            }
+            count[tick] = n;
+        }
+    }
+
+    /**
+     * Returns the number of replicas that reached a tick
+     * @param tick, the tick
+     * @return the number of replicas
+     */
+    public long getCount(int tick) {
+        return count[tick];
+    }
+
+    /**
+     * Returns the mean of a metric at a tick
+     * @param metric, RABBITS or GRASS
+     * @param tick, the tick
+     * @return the mean over the replicas
+     */
+    public double getMean(int metric, int tick) {
+        return mean[metric][tick];
+    }
+
+    /**
+     * Returns the sample variance of a metric at a tick
+     * @param metric, RABBITS or GRASS
+     * @param tick, the tick
+     * @return the variance over the replicas, 0 with less than 2 replicas
+     */
+    public double getVariance(int metric, int tick) {
+        long n = count[tick];
+        return n > 1 ? m2[metric][tick] / (n - 1) : 0;
+    }
+
+    /**
+     * Returns the half-width of the 95% confidence interval of the mean of a metric at a tick
+     * @param metric, RABBITS or GRASS
+     * @param tick, the tick
+     * @return the half-width, NaN with less than 2 replicas
+     */
+    public double getConfidence(int metric, int tick) {
+        long n = count[tick];
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double t = n - 1 <= T95.length ? T95[(int) (n - 2)] : 1.96;
+        return t * Math.sqrt(getVariance(metric, tick) / n);
+    }
+
+    /**
+     * Writes one row per tick reached by at least one replica
+     * @param out, the writer
+     * @param prefix, written at the start of every row, e.g. the values of the parameters
+     * @throws IOException if the rows cannot be written
+     */
+    public void write(BufferedWriter out, String prefix) throws IOException {
+        for (int tick = 1; tick <= ticks; tick++) {
+            if (count[tick] == 0) {
+                continue;
+            }
+            StringBuilder row = new StringBuilder(prefix);
+            row.append(tick).append(',').append(count[tick]);
+            for (int metric = 0; metric < METRICS; metric++) {
+                row.append(',').append(getMean(metric, tick))
+                        .append(',').append(getVariance(metric, tick))
+                        .append(',').append(getConfidence(metric, tick));
+            }
+            out.write(row.toString());
+            out.newLine();
+        }
+    }
+
+    /**
+     * Returns the header of the rows written by write
+     * @return the column names after the prefix
+     */
+    public static String header() {
+        return "tick,replicas,meanRabbits,varRabbits,ci95Rabbits,meanGrass,varGrass,ci95Grass";
+    }
+}
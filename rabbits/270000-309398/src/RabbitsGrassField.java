@@ -0,0 +1,128 @@
+/**
+ * Class that stores the grass of the simulation space in a flat primitive array.
+ * Cells are stored row-major and coordinates wrap around, as the space is a torus.
+ * @author
+ */
+public class RabbitsGrassField {
+
+    private final int sizeX;
+    private final int sizeY;
+    private final int[] grass;
+
+    /**
+     * Class constructor
+     * @param sizeX, width of the field
+     * @param sizeY, height of the field
+     */
+    public RabbitsGrassField(int sizeX, int sizeY) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        grass = new int[sizeX * sizeY];
+    }
+
+    /**
+     * Getter for the width of the field
+     * @return sizeX
+     */
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    /**
+     * Getter for the height of the field
+     * @return sizeY
+     */
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    /**
+     * Returns the row-major index of a cell, wrapping the coordinates around the torus
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @return the index of the cell
+     */
+    public int index(int x, int y) {
+        x %= sizeX;
+        if (x < 0) x += sizeX;
+        y %= sizeY;
+        if (y < 0) y += sizeY;
+        return y * sizeX + x;
+    }
+
+    /**
+     * Returns the grass in a cell
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @return the grass in the cell
+     */
+    public int get(int x, int y) {
+        return grass[index(x, y)];
+    }
+
+    /**
+     * Sets the grass in a cell
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @param value, the new grass value
+     */
+    public void set(int x, int y, int value) {
+        grass[index(x, y)] = value;
+    }
+
+    /**
+     * Adds grass to a cell
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @param amount, the grass to add
+     */
+    public void add(int x, int y, int amount) {
+        grass[index(x, y)] += amount;
+    }
+
+    /**
+     * Returns the grass array itself, row-major, for the kernels that update every cell at once
+     * @return grass
+     */
+    int[] cells() {
+        return grass;
+    }
+
+    /**
+     * Returns a copy of the grass of every cell, row-major
+     * @return the grass values
+     */
+    public int[] toArray() {
+        return grass.clone();
+    }
+
+    /**
+     * Replaces the grass of every cell
+     * @param values, the grass values, row-major
+     * @return the total grass
+     */
+    public int load(int[] values) {
+        if (values.length != grass.length) {
+            throw new IllegalArgumentException("Expected " + grass.length + " cells, got " + values.length);
+        }
+        System.arraycopy(values, 0, grass, 0, grass.length);
+        int total = 0;
+        for (int g : grass) {
+            total += g;
+        }
+        return total;
+    }
+
+    /**
+     * Empties a cell
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @return the grass the cell contained
+     */
+    public int take(int x, int y) {
+        int i = index(x, y);
+        int food = grass[i];
+        grass[i] = 0;
+        return food;
+    }
+}
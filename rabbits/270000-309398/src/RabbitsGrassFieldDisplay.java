@@ -0,0 +1,35 @@
+/**
+ * Adapter that exposes the grass of a dense space as a grid, so that it can be drawn by a Value2DDisplay
+ * and probed from the GUI. It stores nothing: values are read from the grass field, and probe edits go
+ * through the space, so that its grass total and its summed-area table stay up to date.
+ * @author
+ */
+public class RabbitsGrassFieldDisplay extends RabbitsGrassGridView {
+
+    private final RabbitsGrassSimulationSpace space;
+
+    /**
+     * Class constructor
+     * @param space, the space whose grass is displayed
+     */
+    public RabbitsGrassFieldDisplay(RabbitsGrassSimulationSpace space) {
+        super(space.getSizeX(), space.getSizeY());
+        this.space = space;
+    }
+
+    public Object getObjectAt(int x, int y) {
+        return Integer.valueOf(space.getGrassAt(x, y));
+    }
+
+    public double getValueAt(int x, int y) {
+        return space.getGrassAt(x, y);
+    }
+
+    public void putObjectAt(int x, int y, Object object) {
+        space.setGrassAt(x, y, object == null ? 0 : ((Number) object).intValue());
+    }
+
+    public void putValueAt(int x, int y, double value) {
+        space.setGrassAt(x, y, (int) value);
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import uchicago.src.sim.gui.Drawable;
+
+/**
+ * Adapter that exposes one layer of the frame drawn by a RabbitsGrassRenderer as a grid, so that it can
+ * be drawn by a Value2DDisplay (grass) or an Object2DDisplay (rabbits). It is read-only and stores nothing:
+ * its cells, its matrix and its object list are all read from the front frame of the renderer.
+ * @author
+ */
+public class RabbitsGrassFrameDisplay extends RabbitsGrassGridView {
+
+    public static final int GRASS = 0;
+    public static final int RABBITS = 1;
+
+    private final RabbitsGrassRenderer renderer;
+    private final int layer;
+    private final RabbitsGrassSprites sprites;
+
+    /**
+     * Class constructor
+     * @param renderer, the renderer whose front frame is displayed
+     * @param layer, GRASS or RABBITS
+     * @param sprites, the sprites the rabbits are drawn with
+     */
+    public RabbitsGrassFrameDisplay(RabbitsGrassRenderer renderer, int layer, RabbitsGrassSprites sprites) {
+        super(renderer.getSizeX(), renderer.getSizeY());
+        this.renderer = renderer;
+        this.layer = layer;
+        this.sprites = sprites;
+    }
+
+    /**
+     * Returns the rabbits of the front frame as Drawables, to be given to Object2DDisplay.setObjectList
+     * The rabbits are collected from the front frame each time the collection is iterated
+     * @return the live collection of the rabbits
+     */
+    public Collection<Drawable> getObjectList() {
+        return new AbstractCollection<Drawable>() {
+            public int size() {
+                return rabbits().size();
+            }
+
+            public Iterator<Drawable> iterator() {
+                return rabbits().iterator();
+            }
+        };
+    }
+
+    private List<Drawable> rabbits() {
+        RabbitsGrassRenderer.Frame frame = renderer.getFront();
+        int sizeX = renderer.getSizeX();
+        List<Drawable> rabbits = new ArrayList<Drawable>();
+        for (int cell = 0; cell < frame.rabbits.length; cell++) {
+            if (frame.rabbits[cell] != 0) {
+                rabbits.add(new RabbitsGrassPopulationDisplay.RabbitView(cell % sizeX, cell / sizeX, frame.rabbits[cell], sprites));
+            }
+        }
+        return rabbits;
+    }
+
+    public Object getObjectAt(int x, int y) {
+        RabbitsGrassRenderer.Frame frame = renderer.getFront();
+        int cell = y * renderer.getSizeX() + x;
+        if (layer == GRASS) {
+            return Integer.valueOf(frame.grass[cell]);
+        }
+        int energy = frame.rabbits[cell];
+        if (energy == 0) {
+            return null;
+        }
+        return new RabbitsGrassPopulationDisplay.RabbitView(x, y, energy, sprites);
+    }
+
+    public double getValueAt(int x, int y) {
+        RabbitsGrassRenderer.Frame frame = renderer.getFront();
+        int cell = y * renderer.getSizeX() + x;
+        return layer == GRASS ? frame.grass[cell] : frame.rabbits[cell];
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.SplittableRandom;
+
+/**
+ * Class that indexes the cells of the simulation space that hold no rabbit.
+ * The free cells are kept as a bitset, one bit per cell in row-major order, with a Fenwick tree of the
+ * number of free cells of every word. Occupying or freeing a cell and picking a uniformly random free cell
+ * are O(log(cells)), and the k-th free cell only depends on which cells are free, not on the order they
+ * were occupied and freed: a space restored from a snapshot picks the same cells as the original run.
+ * @author
+ */
+public class RabbitsGrassFreeCells {
+
+    //Bit set for every free cell
+    private final long[] words;
+    //Fenwick tree of the number of free cells of every word, 1-based
+    private final int[] tree;
+    //Highest power of two not above the number of words, where the descent of select starts
+    private final int top;
+    private int freeCount;
+
+    /**
+     * Class constructor, every cell starts free
+     * @param cells, the number of cells of the space
+     */
+    public RabbitsGrassFreeCells(int cells) {
+        int n = (cells + 63) >>> 6;
+        words = new long[n];
+        tree = new int[n + 1];
+        for (int w = 0; w < n; w++) {
+            int bits = Math.min(64, cells - (w << 6));
+            words[w] = bits == 64 ? -1L : (1L << bits) - 1;
+            //Linear construction of the Fenwick tree
+            tree[w + 1] += bits;
+            int parent = (w + 1) + ((w + 1) & -(w + 1));
+            if (parent <= n) {
+                tree[parent] += tree[w + 1];
+            }
+        }
+        top = n == 0 ? 0 : Integer.highestOneBit(n);
+        freeCount = cells;
+    }
+
+    /**
+     * Returns the number of free cells
+     * @return freeCount
+     */
+    public int size() {
+        return freeCount;
+    }
+
+    /**
+     * Indicates if a cell is free
+     * @param cell, the index of the cell
+     * @return true if the cell is free
+     */
+    public boolean isFree(int cell) {
+        return (words[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Marks a free cell as occupied
+     * @param cell, the index of the cell
+     */
+    public void occupy(int cell) {
+        if (!isFree(cell)) {
+            throw new IllegalStateException("Cell " + cell + " is already occupied");
+        }
+        words[cell >>> 6] &= ~(1L << cell);
+        update(cell >>> 6, -1);
+        freeCount--;
+    }
+
+    /**
+     * Marks an occupied cell as free
+     * @param cell, the index of the cell
+     */
+    public void vacate(int cell) {
+        if (isFree(cell)) {
+            throw new IllegalStateException("Cell " + cell + " is already free");
+        }
+        words[cell >>> 6] |= 1L << cell;
+        update(cell >>> 6, 1);
+        freeCount++;
+    }
+
+    private void update(int word, int delta) {
+        for (int i = word + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the k-th free cell, in row-major order
+     * @param k, the rank of the cell among the free cells, between 0 and size() - 1
+     * @return the index of the cell
+     */
+    public int select(int k) {
+        //Find the word holding the free cell of rank k, descending the Fenwick tree
+        int w = 0;
+        for (int step = top; step > 0; step >>>= 1) {
+            if (w + step < tree.length && tree[w + step] <= k) {
+                w += step;
+                k -= tree[w];
+            }
+        }
+        //Then the bit of rank k in that word
+        long word = words[w];
+        int bit = 0;
+        for (int width = 32; width > 0; width >>>= 1) {
+            int low = Long.bitCount(word & ((1L << width) - 1));
+            if (low <= k) {
+                k -= low;
+                word >>>= width;
+                bit += width;
+            }
+        }
+        return (w << 6) + bit;
+    }
+
+    /**
+     * Picks a uniformly random free cell
+     * @param random, the random generator
+     * @return the index of the cell, -1 if every cell is occupied
+     */
+    public int random(SplittableRandom random) {
+        if (freeCount == 0) {
+            return -1;
+        }
+        return select(random.nextInt(freeCount));
+    }
+}
@@ -0,0 +1,90 @@
+import java.awt.Dimension;
+
+import uchicago.src.collection.BaseMatrix;
+import uchicago.src.sim.space.Discrete2DSpace;
+
+/**
+ * Base class of the read-only grid views of the simulation, so that they can be drawn by a Value2DDisplay or an
+ * Object2DDisplay and probed from the GUI. A view has no storage of its own: getObjectAt reads the structure
+ * it wraps, and its matrix reads through getObjectAt, so both always agree.
+ * @author
+ */
+public abstract class RabbitsGrassGridView implements Discrete2DSpace {
+
+    private final int sizeX;
+    private final int sizeY;
+    private final BaseMatrix matrix = new Matrix();
+
+    /**
+     * Class constructor
+     * @param sizeX, width of the space
+     * @param sizeY, height of the space
+     */
+    protected RabbitsGrassGridView(int sizeX, int sizeY) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public Dimension getSize() {
+        return new Dimension(sizeX, sizeY);
+    }
+
+    public abstract Object getObjectAt(int x, int y);
+
+    public abstract double getValueAt(int x, int y);
+
+    public void putObjectAt(int x, int y, Object object) {
+        throw new UnsupportedOperationException(getClass().getName() + " is read-only");
+    }
+
+    public void putValueAt(int x, int y, double value) {
+        throw new UnsupportedOperationException(getClass().getName() + " is read-only");
+    }
+
+    public BaseMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Matrix reading the cells of the view, column first
+     */
+    private class Matrix implements BaseMatrix {
+
+        public Object get(int col, int row) {
+            return getObjectAt(col, row);
+        }
+
+        public void put(int col, int row, Object object) {
+            putObjectAt(col, row, object);
+        }
+
+        public Object remove(int col, int row) {
+            Object object = getObjectAt(col, row);
+            putObjectAt(col, row, null);
+            return object;
+        }
+
+        public int getNumRows() {
+            return sizeY;
+        }
+
+        public int getNumCols() {
+            return sizeX;
+        }
+
+        public int size() {
+            return sizeX * sizeY;
+        }
+
+        public void trim() {
+        }
+    }
+}
@@ -0,0 +1,268 @@
+import java.util.SplittableRandom;
+
+/**
+ * Class that spreads new grass over the grass array of the simulation space.
+ * Three kernels are available:
+ * SCATTER drops every unit of grass on a uniformly random cell, as the original model does.
+ * MULTINOMIAL gives the same distribution as SCATTER (each cell receives its share of a multinomial draw),
+ * but draws one Poisson increment per cell for the bulk of the grass and only scatters the remainder,
+ * so that its cost depends on the number of cells rather than on the amount of grass.
+ * POISSON draws an independent Poisson increment per cell, with the same mean as SCATTER; the total
+ * added grass is then only equal to the requested amount on average.
+ * The per-cell increments are drawn in a scratch array and added to the grass in one pass.
+ * @author
+ */
+public class RabbitsGrassGrowth {
+
+    public static final int SCATTER = 0;
+    public static final int MULTINOMIAL = 1;
+    public static final int POISSON = 2;
+
+    //Below this mean, Poisson increments are drawn by table inversion, above it by transformed rejection
+    private static final double INVERSION_LIMIT = 256.0;
+
+    //Number of entries of the guide table of the inversion, per unit of mean
+    private static final int GUIDE_PER_MEAN = 4;
+
+    //Coefficients of the Stirling series of log(gamma)
+    private static final double[] STIRLING = { 8.333333333333333e-02, -2.777777777777778e-03,
+            7.936507936507937e-04, -5.952380952380952e-04, 8.417508417508418e-04, -1.917526917526918e-03,
+            6.410256410256410e-03, -2.955065359477124e-02, 1.796443723688307e-01, -1.39243221690590e+00 };
+
+    private final int mode;
+    private final int sizeX;
+    private final int sizeY;
+
+    //Increments of the current draw, one per cell
+    private int[] increments;
+
+    //Constants of the Poisson sampler for the current mean
+    private double lambda = -1;
+    private double[] cdf;
+    private int[] guide;
+    private double sqrtLambda;
+    private double logLambda;
+    private double b;
+    private double a;
+    private double logInvAlpha;
+    private double vr;
+
+    /**
+     * Class constructor
+     * @param mode, SCATTER, MULTINOMIAL or POISSON
+     * @param sizeX, width of the space
+     * @param sizeY, height of the space
+     */
+    public RabbitsGrassGrowth(int mode, int sizeX, int sizeY) {
+        if (mode < SCATTER || mode > POISSON) {
+            throw new IllegalArgumentException("Unknown grass growth mode " + mode);
+        }
+        this.mode = mode;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+    }
+
+    /**
+     * Getter for the kernel
+     * @return mode
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * Spreads grass on a grass array
+     * @param grass, the grass of every cell, row-major
+     * @param amount, the grass to spread
+     * @param random, the random generator
+     * @return the grass actually added, equal to amount except in POISSON mode
+     */
+    public int grow(int[] grass, int amount, SplittableRandom random) {
+        if (amount <= 0) {
+            return 0;
+        }
+        int cells = grass.length;
+        if (mode == POISSON) {
+            int added = draw(cells, (double) amount / cells, random);
+            addIncrements(grass);
+            return added;
+        }
+        if (mode == SCATTER || amount < cells) {
+            //Sparse growth is cheaper to scatter, and the result has the same distribution
+            scatter(grass, amount, random);
+            return amount;
+        }
+        //Poisson counts conditioned on their total are multinomial: draw slightly less than the amount,
+        //redraw in the rare case of an overshoot, and scatter what is missing
+        double bulk = Math.max(0.0, amount - 3.0 * Math.sqrt(amount));
+        int drawn;
+        do {
+            drawn = draw(cells, bulk / cells, random);
+        } while (drawn > amount);
+        addIncrements(grass);
+        scatter(grass, amount - drawn, random);
+        return amount;
+    }
+
+    /**
+     * Drops units of grass one at a time on uniformly random cells
+     * @param grass, the grass of every cell, row-major
+     * @param amount, the number of units
+     * @param random, the random generator
+     */
+    private void scatter(int[] grass, int amount, SplittableRandom random) {
+        for (int i = 0; i < amount; i++) {
+            int x = random.nextInt(sizeX);
+            int y = random.nextInt(sizeY);
+            grass[y * sizeX + x]++;
+        }
+    }
+
+    /**
+     * Draws a Poisson increment for every cell in the scratch array
+     * @param cells, the number of cells
+     * @param mean, the mean increment of a cell
+     * @param random, the random generator
+     * @return the sum of the increments
+     */
+    private int draw(int cells, double mean, SplittableRandom random) {
+        if (increments == null || increments.length != cells) {
+            increments = new int[cells];
+        }
+        prepare(mean);
+        int[] inc = increments;
+        int total = 0;
+        if (mean < INVERSION_LIMIT) {
+            for (int i = 0; i < cells; i++) {
+                int k = inversion(random);
+                inc[i] = k;
+                total += k;
+            }
+        } else {
+            for (int i = 0; i < cells; i++) {
+                int k = rejection(random);
+                inc[i] = k;
+                total += k;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Adds the scratch increments to the grass, a plain loop the JIT compiles to vector instructions
+     * @param grass, the grass of every cell, row-major
+     */
+    private void addIncrements(int[] grass) {
+        int[] inc = increments;
+        for (int i = 0; i < grass.length; i++) {
+            grass[i] += inc[i];
+        }
+    }
+
+    /**
+     * Computes the constants of the Poisson sampler, if the mean changed since the last draw
+     * @param mean, the mean of the Poisson distribution
+     */
+    private void prepare(double mean) {
+        if (mean == lambda) {
+            return;
+        }
+        lambda = mean;
+        if (mean < INVERSION_LIMIT) {
+            //Distribution function up to where the tail is below double precision
+            int limit = (int) (mean + 12 * Math.sqrt(mean) + 16);
+            cdf = new double[limit + 1];
+            double p = Math.exp(-mean);
+            double f = p;
+            cdf[0] = f;
+            for (int k = 1; k < limit; k++) {
+                p *= mean / k;
+                f += p;
+                cdf[k] = f;
+            }
+            cdf[limit] = 1.0;
+            //guide[j] is the first value whose distribution function reaches j / guide.length
+            guide = new int[(int) (mean * GUIDE_PER_MEAN) + 1];
+            int k = 0;
+            for (int j = 0; j < guide.length; j++) {
+                while (cdf[k] < (double) j / guide.length) {
+                    k++;
+                }
+                guide[j] = k;
+            }
+        } else {
+            sqrtLambda = Math.sqrt(mean);
+            logLambda = Math.log(mean);
+            b = 0.931 + 2.53 * sqrtLambda;
+            a = -0.059 + 0.02483 * b;
+            logInvAlpha = Math.log(1.1239 + 1.1328 / (b - 3.4));
+            vr = 0.9277 - 3.6224 / (b - 2);
+        }
+    }
+
+    /**
+     * Draws a Poisson value by inversion of its tabulated distribution function, for small means
+     * The guide table jumps close to the value, so that only one or two comparisons are needed
+     * @param random, the random generator
+     * @return the value
+     */
+    private int inversion(SplittableRandom random) {
+        double u = random.nextDouble();
+        int k = guide[(int) (u * guide.length)];
+        while (u >= cdf[k]) {
+            k++;
+        }
+        return k;
+    }
+
+    /**
+     * Draws a Poisson value by transformed rejection (Hormann's PTRS), for large means
+     * @param random, the random generator
+     * @return the value
+     */
+    private int rejection(SplittableRandom random) {
+        while (true) {
+            double u = random.nextDouble() - 0.5;
+            double v = random.nextDouble();
+            double us = 0.5 - Math.abs(u);
+            int k = (int) Math.floor((2 * a / us + b) * u + lambda + 0.43);
+            if (us >= 0.07 && v <= vr) {
+                return k;
+            }
+            if (k < 0 || (us < 0.013 && v > us)) {
+                continue;
+            }
+            if (Math.log(v) + logInvAlpha - Math.log(a / (us * us) + b) <= -lambda + k * logLambda - logGamma(k + 1)) {
+                return k;
+            }
+        }
+    }
+
+    /**
+     * Computes log(gamma(x)) with a Stirling series
+     * @param x, a positive number
+     * @return log(gamma(x))
+     */
+    private static double logGamma(double x) {
+        if (x == 1.0 || x == 2.0) {
+            return 0.0;
+        }
+        double x0 = x;
+        int shift = 0;
+        if (x <= 7.0) {
+            shift = (int) (7 - x);
+            x0 = x + shift;
+        }
+        double x2 = 1.0 / (x0 * x0);
+        double series = STIRLING[9];
+        for (int k = 8; k >= 0; k--) {
+            series = series * x2 + STIRLING[k];
+        }
+        double result = series / x0 + 0.5 * Math.log(2 * Math.PI) + (x0 - 0.5) * Math.log(x0) - x0;
+        for (int k = 1; k <= shift; k++) {
+            x0 -= 1.0;
+            result -= Math.log(x0);
+        }
+        return result;
+    }
+}
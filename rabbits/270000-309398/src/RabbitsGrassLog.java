@@ -0,0 +1,306 @@
+import java.io.PrintStream;
+
+/**
+ * Class that logs the rabbits grass simulation asynchronously.
+ * Records are stored as primitives in a bounded ring buffer and formatted by a background writer thread,
+ * so a simulation step never builds a String nor waits for the console. When the buffer is full, new
+ * INFO records and rabbit reports are dropped and counted rather than stalling the simulation. ERROR records
+ * are never dropped: error() waits for room in the buffer and returns once the message is printed.
+ * The writer thread sleeps while the buffer is empty and is woken up by the next record.
+ * Rabbit reports are sampled: only every n-th tick, and only the rabbits whose ID is a multiple of m.
+ * Every model has its own logger, with its own level and sampling, so that the replicas of a sweep running
+ * side by side do not change each other's settings. The writer thread and its buffer are shared by all the
+ * loggers, which print to the same stream.
+ * @author
+ */
+public class RabbitsGrassLog {
+
+    public static final int OFF = 0;
+    public static final int ERROR = 1;
+    public static final int INFO = 2;
+    public static final int DEBUG = 3;
+
+    private static final int CAPACITY = 1 << 16;
+    private static final int MASK = CAPACITY - 1;
+
+    //Ring buffer, one record per index: a message, or a rabbit report if the message is null
+    private static final String[] messages = new String[CAPACITY];
+    private static final long[] ticks = new long[CAPACITY];
+    private static final int[] ids = new int[CAPACITY];
+    private static final int[] xs = new int[CAPACITY];
+    private static final int[] ys = new int[CAPACITY];
+    private static final int[] energies = new int[CAPACITY];
+
+    //Next record to write and next record to read
+    private static volatile long head;
+    private static volatile long tail;
+    private static long dropped;
+
+    //Threads waiting for the writer to print records, and whether the writer is waiting for records
+    private static volatile int waiters;
+    private static boolean writerWaiting;
+
+    private static volatile PrintStream out = System.out;
+
+    private static final Object lock = new Object();
+    private static Thread writer;
+
+    //Logger of the code that belongs to no model
+    private static final RabbitsGrassLog shared = new RabbitsGrassLog();
+
+    private volatile int level = INFO;
+    private volatile int sampleTicks = 1;
+    private volatile int sampleRabbits = 1;
+
+    /**
+     * Class constructor, logs at INFO level and reports every rabbit at every tick
+     */
+    public RabbitsGrassLog() {
+    }
+
+    /**
+     * Getter for the logger of the code that belongs to no model, such as the shared sprite cache
+     * @return the shared logger
+     */
+    public static RabbitsGrassLog shared() {
+        return shared;
+    }
+
+    /**
+     * Setter for the level, rabbit reports are logged at DEBUG
+     * @param newLevel, one of OFF, ERROR, INFO and DEBUG
+     */
+    public void setLevel(int newLevel) {
+        level = newLevel;
+    }
+
+    /**
+     * Getter for the level
+     * @return level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the sampling of the rabbit reports
+     * @param everyTicks, rabbits are reported every everyTicks ticks
+     * @param everyRabbits, only the rabbits whose ID is a multiple of everyRabbits are reported
+     */
+    public void setSampling(int everyTicks, int everyRabbits) {
+        sampleTicks = Math.max(1, everyTicks);
+        sampleRabbits = Math.max(1, everyRabbits);
+    }
+
+    /**
+     * Setter for the stream the writer thread prints to
+     * @param stream, the new stream
+     */
+    public static void setOutput(PrintStream stream) {
+        flush();
+        out = stream;
+    }
+
+    /**
+     * Indicates if the rabbits are reported at a given tick
+     * @param tick, the current tick
+     * @return true if some rabbits are reported
+     */
+    public boolean isTickSampled(long tick) {
+        return level >= DEBUG && tick % sampleTicks == 0;
+    }
+
+    /**
+     * Indicates if a rabbit is reported at a given tick
+     * @param tick, the current tick
+     * @param id, the ID of the rabbit
+     * @return true if the rabbit is reported
+     */
+    public boolean isSampled(long tick, int id) {
+        return isTickSampled(tick) && id % sampleRabbits == 0;
+    }
+
+    /**
+     * Logs the report of a rabbit, if it is sampled
+     * @param tick, the current tick
+     * @param id, the ID of the rabbit
+     * @param x, the x position of the rabbit
+     * @param y, the y position of the rabbit
+     * @param energy, the energy of the rabbit
+     */
+    public void rabbit(long tick, int id, int x, int y, int energy) {
+        if (isSampled(tick, id)) {
+            publish(null, tick, id, x, y, energy, false);
+        }
+    }
+
+    /**
+     * Logs a message at INFO level
+     * @param message, the message
+     */
+    public void info(String message) {
+        if (level >= INFO) {
+            publish(message, 0, 0, 0, 0, 0, false);
+        }
+    }
+
+    /**
+     * Logs a message at ERROR level, waits until it is printed
+     * @param message, the message
+     */
+    public void error(String message) {
+        if (level >= ERROR) {
+            long record = publish(message, 0, 0, 0, 0, 0, true);
+            awaitWritten(record + 1);
+            out.flush();
+        }
+    }
+
+    /**
+     * Getter for the number of records dropped because the buffer was full
+     * @return the number of dropped records
+     */
+    public static long getDropped() {
+        synchronized (lock) {
+            return dropped;
+        }
+    }
+
+    /**
+     * Waits until the writer thread has printed every record
+     */
+    public static void flush() {
+        long h;
+        synchronized (lock) {
+            h = head;
+        }
+        awaitWritten(h);
+        out.flush();
+    }
+
+    /**
+     * Waits until the writer thread has printed the records before a given one
+     * An interrupt does not stop the wait, it is restored once the records are printed
+     * @param record, the index of the first record that does not need to be printed
+     */
+    private static void awaitWritten(long record) {
+        boolean interrupted = false;
+        synchronized (lock) {
+            waiters++;
+            try {
+                while (tail < record) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                waiters--;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stores a record in the ring buffer
+     * @param blocking, true to wait for room when the buffer is full, false to drop the record
+     * @return the index of the record, -1 if it was dropped
+     */
+    private static long publish(String message, long tick, int id, int x, int y, int energy, boolean blocking) {
+        boolean interrupted = false;
+        try {
+            synchronized (lock) {
+                if (writer == null) {
+                    startWriter();
+                }
+                while (head - tail >= CAPACITY) {
+                    if (!blocking) {
+                        dropped++;
+                        return -1;
+                    }
+                    waiters++;
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } finally {
+                        waiters--;
+                    }
+                }
+                long h = head;
+                int i = (int) (h & MASK);
+                messages[i] = message;
+                ticks[i] = tick;
+                ids[i] = id;
+                xs[i] = x;
+                ys[i] = y;
+                energies[i] = energy;
+                head = h + 1;
+                if (writerWaiting) {
+                    lock.notifyAll();
+                }
+                return h;
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Starts the background thread printing the records
+     * The writer only takes the lock to sleep when the buffer is empty, and to wake up the waiting threads
+     */
+    private static void startWriter() {
+        writer = new Thread(new Runnable() {
+            public void run() {
+                StringBuilder line = new StringBuilder();
+                while (true) {
+                    long t = tail;
+                    if (t == head) {
+                        synchronized (lock) {
+                            while (tail == head) {
+                                writerWaiting = true;
+                                try {
+                                    lock.wait();
+                                } catch (InterruptedException e) {
+                                    //The writer runs until the JVM exits
+                                }
+                            }
+                            writerWaiting = false;
+                        }
+                    }
+                    int i = (int) (t & MASK);
+                    line.setLength(0);
+                    if (messages[i] != null) {
+                        line.append(messages[i]);
+                        messages[i] = null;
+                    } else {
+                        line.append("[").append(ticks[i]).append("] A-").append(ids[i])
+                                .append(" at ").append(xs[i]).append(", ").append(ys[i])
+                                .append(" has ").append(energies[i]).append(" energy.");
+                    }
+                    out.println(line);
+                    tail = t + 1;
+                    //A waiter registers before reading tail, so either it sees the new tail or it is notified
+                    if (waiters > 0) {
+                        synchronized (lock) {
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            }
+        }, "RabbitsGrassLog writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                flush();
+            }
+        }));
+    }
+}
@@ -0,0 +1,239 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Class that exposes live metrics of a running simulation: through a JMX MBean, and optionally through an
+ * HTTP endpoint in the Prometheus text format, bound to the loopback address only.
+ *
+ * The simulation publishes its values once per tick, without any lock: values are volatile fields written
+ * by the simulation thread only, guarded by a sequence number so that a scrape reads the values of a single
+ * tick. A scrape never blocks the simulation; at worst it retries while a tick is being published.
+ * Heap and GC time are read from the JVM when scraped.
+ * @author
+ */
+public class RabbitsGrassMetrics implements RabbitsGrassMetricsMBean {
+
+    private static final AtomicInteger instances = new AtomicInteger();
+
+    //Odd while the simulation thread is publishing a tick
+    private volatile long sequence;
+    private volatile long tick;
+    private volatile int rabbits;
+    private volatile long grass;
+    private volatile int births;
+    private volatile int deaths;
+    private volatile long totalBirths;
+    private volatile long totalDeaths;
+    private volatile double ticksPerSecond;
+
+    //Speed measurement, simulation thread only
+    private long windowTick;
+    private long windowStart = System.nanoTime();
+
+    private final RabbitsGrassLog log;
+    private ObjectName name;
+    private HttpServer server;
+
+    /**
+     * Class constructor
+     * @param log, the logger of the model
+     */
+    public RabbitsGrassMetrics(RabbitsGrassLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Publishes the values of a tick, called by the simulation thread only
+     * @param tick, the tick that just ended
+     * @param rabbits, the number of rabbits
+     * @param grass, the total grass
+     * @param births, the rabbits born during the tick
+     * @param deaths, the rabbits dead during the tick
+     */
+    public void publish(long tick, int rabbits, long grass, int births, int deaths) {
+        long now = System.nanoTime();
+        double speed = ticksPerSecond;
+        if (now - windowStart >= 1000000000L) {
+            speed = (tick - windowTick) / ((now - windowStart) / 1e9);
+            windowTick = tick;
+            windowStart = now;
+        }
+        long s = sequence;
+        sequence = s + 1;
+        this.tick = tick;
+        this.rabbits = rabbits;
+        this.grass = grass;
+        this.births = births;
+        this.deaths = deaths;
+        totalBirths += births;
+        totalDeaths += deaths;
+        ticksPerSecond = speed;
+        sequence = s + 2;
+    }
+
+    /**
+     * Registers the metrics as a JMX MBean, named RabbitsGrass:type=Metrics,id=<n>
+     * @throws JMException if the MBean cannot be registered
+     */
+    public void register() throws JMException {
+        name = new ObjectName("RabbitsGrass:type=Metrics,id=" + instances.incrementAndGet());
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+    }
+
+    /**
+     * Starts serving the metrics at http://127.0.0.1:<port>/metrics
+     * @param port, the port to listen on
+     * @throws IOException if the server cannot be started
+     */
+    public void serve(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = format().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                try {
+                    out.write(body);
+                } finally {
+                    out.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Getter for the address the metrics are served at
+     * @return the address, null if the metrics are not served over HTTP
+     */
+    public InetSocketAddress getAddress() {
+        return server == null ? null : server.getAddress();
+    }
+
+    /**
+     * Stops the HTTP server and unregisters the MBean, if they were started
+     */
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException e) {
+                log.error("Cannot unregister " + name + ": " + e.getMessage());
+            }
+            name = null;
+        }
+    }
+
+    /**
+     * Formats the metrics of the last tick in the Prometheus text format
+     * @return the exposition text
+     */
+    public String format() {
+        long t;
+        int r;
+        long g;
+        int b;
+        int d;
+        long tb;
+        long td;
+        double speed;
+        long s;
+        do {
+            s = sequence;
+            t = tick;
+            r = rabbits;
+            g = grass;
+            b = births;
+            d = deaths;
+            tb = totalBirths;
+            td = totalDeaths;
+            speed = ticksPerSecond;
+        } while ((s & 1) != 0 || s != sequence);
+        StringBuilder out = new StringBuilder(1024);
+        metric(out, "rabbits_tick", "gauge", "Last tick of the simulation", t);
+        metric(out, "rabbits_ticks_per_second", "gauge", "Ticks per second over the last second", speed);
+        metric(out, "rabbits_population", "gauge", "Number of rabbits", r);
+        metric(out, "rabbits_grass", "gauge", "Total grass in the space", g);
+        metric(out, "rabbits_births", "gauge", "Rabbits born during the last tick", b);
+        metric(out, "rabbits_deaths", "gauge", "Rabbits dead during the last tick", d);
+        metric(out, "rabbits_births_total", "counter", "Rabbits born since the start of the run", tb);
+        metric(out, "rabbits_deaths_total", "counter", "Rabbits dead since the start of the run", td);
+        metric(out, "rabbits_jvm_heap_used_bytes", "gauge", "Heap used by the JVM", getHeapUsed());
+        metric(out, "rabbits_jvm_gc_time_seconds_total", "counter", "Time spent in garbage collection", getGcTimeMillis() / 1e3);
+        return out.toString();
+    }
+
+    private static void metric(StringBuilder out, String metric, String type, String help, double value) {
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+        out.append(metric).append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public double getTicksPerSecond() {
+        return ticksPerSecond;
+    }
+
+    public int getRabbits() {
+        return rabbits;
+    }
+
+    public long getGrass() {
+        return grass;
+    }
+
+    public int getBirths() {
+        return births;
+    }
+
+    public int getDeaths() {
+        return deaths;
+    }
+
+    public long getTotalBirths() {
+        return totalBirths;
+    }
+
+    public long getTotalDeaths() {
+        return totalDeaths;
+    }
+
+    public long getHeapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    public long getGcTimeMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Management interface of the live metrics of a rabbits grass simulation, registered as a JMX MBean
+ * @author
+ */
+public interface RabbitsGrassMetricsMBean {
+
+    /**
+     * Getter for the last tick of the run
+     * @return the tick
+     */
+    long getTick();
+
+    /**
+     * Getter for the speed of the run, over the last second or so
+     * @return the number of ticks per second
+     */
+    double getTicksPerSecond();
+
+    /**
+     * Getter for the number of rabbits
+     * @return the rabbits at the last tick
+     */
+    int getRabbits();
+
+    /**
+     * Getter for the total grass
+     * @return the grass at the last tick
+     */
+    long getGrass();
+
+    /**
+     * Getter for the rabbits born during the last tick
+     * @return the births
+     */
+    int getBirths();
+
+    /**
+     * Getter for the rabbits dead during the last tick
+     * @return the deaths
+     */
+    int getDeaths();
+
+    /**
+     * Getter for the rabbits born since the start of the run
+     * @return the total births
+     */
+    long getTotalBirths();
+
+    /**
+     * Getter for the rabbits dead since the start of the run
+     * @return the total deaths
+     */
+    long getTotalDeaths();
+
+    /**
+     * Getter for the heap used by the JVM
+     * @return the used heap, in bytes
+     */
+    long getHeapUsed();
+
+    /**
+     * Getter for the time spent in garbage collection since the JVM started
+     * @return the collection time, in milliseconds
+     */
+    long getGcTimeMillis();
+}
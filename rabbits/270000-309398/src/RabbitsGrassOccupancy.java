@@ -0,0 +1,161 @@
+/**
+ * Class that stores which cells of the simulation space hold a rabbit, one bit per cell.
+ * Cells are stored row-major and coordinates wrap around, as the space is a torus. Every row starts on
+ * a new word, so that counting the rabbits of a row segment is a few popcounts.
+ * @author
+ */
+public class RabbitsGrassOccupancy {
+
+    private final int sizeX;
+    private final int sizeY;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    /**
+     * Class constructor, every cell starts empty
+     * @param sizeX, width of the space
+     * @param sizeY, height of the space
+     */
+    public RabbitsGrassOccupancy(int sizeX, int sizeY) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        wordsPerRow = (sizeX + 63) >>> 6;
+        words = new long[wordsPerRow * sizeY];
+    }
+
+    /**
+     * Indicates if a cell is occupied
+     * @param x, the x position of the cell, between 0 and sizeX - 1
+     * @param y, the y position of the cell, between 0 and sizeY - 1
+     * @return true if the cell is occupied
+     */
+    public boolean get(int x, int y) {
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Marks a cell as occupied
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     */
+    public void set(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    /**
+     * Marks a cell as empty
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     */
+    public void clear(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] &= ~(1L << x);
+    }
+
+    /**
+     * Counts the occupied cells
+     * @return the number of occupied cells
+     */
+    public int count() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Finds the next occupied cell, in row-major order
+     * @param cell, the row-major index of the first cell to look at
+     * @return the row-major index of the first occupied cell from there, -1 if there is none
+     */
+    public int nextOccupied(int cell) {
+        int total = sizeX * sizeY;
+        if (cell >= total) {
+            return -1;
+        }
+        int y = cell / sizeX;
+        int x = cell - y * sizeX;
+        int w = x >>> 6;
+        long word = words[y * wordsPerRow + w] & (-1L << x);
+        while (true) {
+            if (word != 0) {
+                return y * sizeX + (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == wordsPerRow) {
+                w = 0;
+                if (++y == sizeY) {
+                    return -1;
+                }
+            }
+            word = words[y * wordsPerRow + w];
+        }
+    }
+
+    /**
+     * Counts the occupied cells of a row segment
+     * @param y, the row, between 0 and sizeY - 1
+     * @param from, the first x position, between 0 and sizeX - 1
+     * @param to, the last x position included, between from and sizeX - 1
+     * @return the number of occupied cells
+     */
+    private int countRow(int y, int from, int to) {
+        int base = y * wordsPerRow;
+        int first = from >>> 6;
+        int last = to >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (first == last) {
+            return Long.bitCount(words[base + first] & firstMask & lastMask);
+        }
+        int count = Long.bitCount(words[base + first] & firstMask);
+        for (int w = first + 1; w < last; w++) {
+            count += Long.bitCount(words[base + w]);
+        }
+        return count + Long.bitCount(words[base + last] & lastMask);
+    }
+
+    /**
+     * Counts the occupied cells in the square of radius r around a cell, the cell included,
+     * wrapping around the torus
+     * @param x, the x position of the center
+     * @param y, the y position of the center
+     * @param r, the radius, the square is 2r+1 cells wide (clamped to the size of the space)
+     * @return the number of occupied cells
+     */
+    public int countAround(int x, int y, int r) {
+        int width = Math.min(2 * r + 1, sizeX);
+        int height = Math.min(2 * r + 1, sizeY);
+        int x0 = Math.floorMod(x - r, sizeX);
+        int y0 = Math.floorMod(y - r, sizeY);
+        int count = 0;
+        for (int j = 0; j < height; j++) {
+            int row = (y0 + j) % sizeY;
+            int x1 = x0 + width - 1;
+            if (x1 < sizeX) {
+                count += countRow(row, x0, x1);
+            } else {
+                count += countRow(row, x0, sizeX - 1) + countRow(row, 0, x1 - sizeX);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the occupied cells among the four neighbours of a cell (north, west, south and east)
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @return the number of occupied neighbours
+     */
+    public int countNeighbours(int x, int y) {
+        int east = x + 1 == sizeX ? 0 : x + 1;
+        int west = x == 0 ? sizeX - 1 : x - 1;
+        int south = y + 1 == sizeY ? 0 : y + 1;
+        int north = y == 0 ? sizeY - 1 : y - 1;
+        int count = 0;
+        if (get(east, y)) count++;
+        if (get(west, y)) count++;
+        if (get(x, south)) count++;
+        if (get(x, north)) count++;
+        return count;
+    }
+}
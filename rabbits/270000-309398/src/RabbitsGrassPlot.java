@@ -0,0 +1,108 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import uchicago.src.sim.analysis.Plot;
+import uchicago.src.sim.analysis.Sequence;
+import uchicago.src.sim.engine.SimModel;
+
+/**
+ * Class that plots sequences over a run of any length with a bounded number of points per sequence.
+ * It samples its sequences at every step into RabbitsGrassDownsampler series, and redraws the whole plot
+ * from them when updated: half of the points are the recent samples at full resolution, the other half
+ * the min/max buckets of the older ones. Used instead of OpenSequenceGraph, which keeps every point.
+ * @author
+ */
+public class RabbitsGrassPlot {
+
+    private final Plot plot;
+    private final int points;
+    private final List<Sequence> sources = new ArrayList<Sequence>();
+    private final List<RabbitsGrassDownsampler> series = new ArrayList<RabbitsGrassDownsampler>();
+
+    //Points of a series when the plot is redrawn, reused from one update to the next
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+
+    /**
+     * Class constructor
+     * @param title, the title of the plot window
+     * @param model, the model the plot belongs to
+     * @param points, the largest number of points plotted per sequence, at least 8
+     */
+    public RabbitsGrassPlot(String title, SimModel model, int points) {
+        plot = new Plot(title, model);
+        this.points = Math.max(points, 8);
+    }
+
+    /**
+     * Getter for the underlying plot, e.g. to register it as a media producer
+     * @return plot
+     */
+    public Plot getPlot() {
+        return plot;
+    }
+
+    /**
+     * Sets the titles of the axes
+     * @param xTitle, the title of the x axis
+     * @param yTitle, the title of the y axis
+     */
+    public void setAxisTitles(String xTitle, String yTitle) {
+        plot.setAxisTitles(xTitle, yTitle);
+    }
+
+    /**
+     * Adds a sequence to plot
+     * @param name, the name of the sequence in the legend
+     * @param source, the sequence
+     */
+    public void addSequence(String name, Sequence source) {
+        plot.addLegend(sources.size(), name);
+        sources.add(source);
+        //Half of the points for the recent samples, the other half for the buckets, two points each
+        RabbitsGrassDownsampler s = new RabbitsGrassDownsampler(points / 4, points / 2);
+        series.add(s);
+        if (xs.length < s.capacity()) {
+            xs = new double[s.capacity()];
+            ys = new double[s.capacity()];
+        }
+    }
+
+    /**
+     * Samples every sequence
+     * @param tick, the current tick, the x value of the samples
+     */
+    public void step(double tick) {
+        for (int i = 0; i < sources.size(); i++) {
+            series.get(i).add(tick, sources.get(i).getSValue());
+        }
+    }
+
+    /**
+     * Redraws every sequence from its downsampled points
+     */
+    public void update() {
+        for (int i = 0; i < series.size(); i++) {
+            plot.clear(i);
+            int n = series.get(i).points(xs, ys);
+            for (int k = 0; k < n; k++) {
+                plot.plotPoint(xs[k], ys[k], i);
+            }
+        }
+        plot.updateGraph();
+    }
+
+    /**
+     * Shows the plot window
+     */
+    public void display() {
+        plot.display();
+    }
+
+    /**
+     * Closes the plot window
+     */
+    public void dispose() {
+        plot.dispose();
+    }
+}
@@ -0,0 +1,714 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Class that stores the rabbits of the simulation as parallel primitive arrays instead of agent Objects.
+ * A rabbit is a slot index in the arrays, dead slots are recycled through a free-list.
+ * It implements the same behaviour as RabbitsGrassSimulationAgent, without any per-rabbit Object.
+ * @author
+ */
+public class RabbitsGrassPopulation {
+
+    private final RabbitsGrassSimulationSpace rgSpace;
+    private final int sizeX;
+    private final int sizeY;
+
+    //Per-slot state, the ID of a free slot is 0
+    private int[] x;
+    private int[] y;
+    private int[] energy;
+    private int[] id;
+
+    //Recycled slots
+    private int[] freeSlots;
+    private int freeCount;
+    private int usedSlots;
+
+    //Slots of the living rabbits, in stepping order
+    private int[] order;
+    private int orderSize;
+
+    //Slot + 1 of the rabbit in each cell, 0 if the cell is empty
+    private final int[] slotAt;
+
+    private int IDNumber = 0;
+
+    //Buffers of the tiled step, reused from one tick to the next
+    private int[] bucket = new int[0];
+    private int[] targets = new int[0];
+    private int[] movedFrom = new int[0];
+    private int[] movedTo = new int[0];
+    private int[] movedFood = new int[0];
+
+    //Buffers of the synchronous step: back buffers of the rabbit state, swapped with the front ones at the
+    //end of the step, and the intent of every rabbit, indexed by slot
+    private int[] backX = new int[0];
+    private int[] backY = new int[0];
+    private int[] backEnergy = new int[0];
+    private int[] intent = new int[0];
+    private long[] priority = new long[0];
+    private byte[] outcome = new byte[0];
+    private int[] eaten = new int[0];
+
+    //Outcomes of the synchronous step
+    private static final byte STAYED = 0;
+    private static final byte MOVED = 1;
+    private static final byte MATED = 2;
+
+    /**
+     * Class constructor
+     * @param rgSpace, the simulation space the rabbits live in
+     * @param initialCapacity, the number of rabbits that can be stored before the arrays grow
+     */
+    public RabbitsGrassPopulation(RabbitsGrassSimulationSpace rgSpace, int initialCapacity) {
+        this.rgSpace = rgSpace;
+        sizeX = rgSpace.getSizeX();
+        sizeY = rgSpace.getSizeY();
+        int capacity = Math.max(initialCapacity, 16);
+        x = new int[capacity];
+        y = new int[capacity];
+        energy = new int[capacity];
+        id = new int[capacity];
+        freeSlots = new int[capacity];
+        order = new int[capacity];
+        slotAt = new int[sizeX * sizeY];
+        rgSpace.setPopulation(this);
+    }
+
+    /**
+     * Returns the number of living rabbits
+     * @return the size of the population
+     */
+    public int size() {
+        return orderSize;
+    }
+
+    /**
+     * Indicates if a cell is occupied
+     * @param cx, the x position of the cell
+     * @param cy, the y position of the cell
+     * @return true if the cell is occupied, false if not
+     */
+    public boolean isCellOccupied(int cx, int cy) {
+        return slotAt[cy * sizeX + cx] != 0;
+    }
+
+    /**
+     * Returns the slot of the rabbit in a cell
+     * @param cx, the x position of the cell
+     * @param cy, the y position of the cell
+     * @return the slot, -1 if the cell is empty
+     */
+    public int getSlotAt(int cx, int cy) {
+        return slotAt[cy * sizeX + cx] - 1;
+    }
+
+    /**
+     * Getter for the x position of a rabbit
+     * @param slot, the slot of the rabbit
+     * @return x
+     */
+    public int getX(int slot) {
+        return x[slot];
+    }
+
+    /**
+     * Getter for the y position of a rabbit
+     * @param slot, the slot of the rabbit
+     * @return y
+     */
+    public int getY(int slot) {
+        return y[slot];
+    }
+
+    /**
+     * Getter for the energy of a rabbit
+     * @param slot, the slot of the rabbit
+     * @return energy
+     */
+    public int getEnergy(int slot) {
+        return energy[slot];
+    }
+
+    /**
+     * Getter for the ID of a rabbit
+     * @param slot, the slot of the rabbit
+     * @return the ID, a String
+     */
+    public String getID(int slot) {
+        return "A-" + id[slot];
+    }
+
+    /**
+     * Returns the slot of a rabbit in the stepping order
+     * @param i, the position in the stepping order, below size()
+     * @return the slot
+     */
+    public int getSlot(int i) {
+        return order[i];
+    }
+
+    /**
+     * Getter for the numeric ID of a rabbit
+     * @param slot, the slot of the rabbit
+     * @return the ID
+     */
+    public int getIDNumber(int slot) {
+        return id[slot];
+    }
+
+    /**
+     * Getter for the last ID given to a rabbit
+     * @return IDNumber
+     */
+    public int getLastIDNumber() {
+        return IDNumber;
+    }
+
+    /**
+     * Adds a rabbit with a known ID in a given empty cell, e.g. when a snapshot is restored
+     * The rabbit is stepped after the rabbits already in the population
+     * @param rabbitID, the ID of the rabbit
+     * @param cx, the x position of the cell
+     * @param cy, the y position of the cell
+     * @param rabbitEnergy, the energy of the rabbit
+     */
+    public void restore(int rabbitID, int cx, int cy, int rabbitEnergy) {
+        int slot = addAt(cx, cy, rabbitEnergy);
+        IDNumber--;
+        id[slot] = rabbitID;
+    }
+
+    /**
+     * Setter for the last ID given to a rabbit, e.g. when a snapshot is restored
+     * @param lastIDNumber, the new last ID
+     */
+    public void setLastIDNumber(int lastIDNumber) {
+        IDNumber = lastIDNumber;
+    }
+
+    /**
+     * Adds a rabbit at a random available cell, picked uniformly from the free cells of the space
+     * @param minEnergy, the energy of the rabbit at birth
+     * @return the slot of the new rabbit, -1 if every cell is occupied
+     */
+    public int add(int minEnergy) {
+        int cell = rgSpace.randomFreeCell();
+        if (cell < 0) {
+            return -1;
+        }
+        return addAt(cell % sizeX, cell / sizeX, minEnergy);
+    }
+
+    /**
+     * Adds a rabbit in a given empty cell
+     * @param cx, the x position of the cell
+     * @param cy, the y position of the cell
+     * @param minEnergy, the energy of the rabbit at birth
+     * @return the slot of the new rabbit
+     */
+    private int addAt(int cx, int cy, int minEnergy) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (usedSlots == x.length) {
+                grow();
+            }
+            slot = usedSlots++;
+        }
+        x[slot] = cx;
+        y[slot] = cy;
+        energy[slot] = minEnergy;
+        IDNumber++;
+        id[slot] = IDNumber;
+        slotAt[cy * sizeX + cx] = slot + 1;
+        order[orderSize++] = slot;
+        rgSpace.occupyCell(cx, cy);
+        return slot;
+    }
+
+    /**
+     * Doubles the capacity of the slot arrays
+     */
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        energy = Arrays.copyOf(energy, capacity);
+        id = Arrays.copyOf(id, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+        order = Arrays.copyOf(order, capacity);
+    }
+
+    /**
+     * Performs a simulation step for every rabbit, in a random order
+     * Rabbits born during the step are stepped too, as in the agent list
+     * @param energyGain, the energy per grass a rabbit gains
+     * @param lossReproduction, the energy lost when it reproduces
+     * @param birthThreshold, the minimum energy with which a rabbit can reproduce
+     * @param newbornEnergy, the energy of a rabbit at birth
+     * @return the number of rabbits born
+     */
+    public int step(int energyGain, int lossReproduction, int birthThreshold, int newbornEnergy) {
+        shuffle();
+        int births = 0;
+        for (int i = 0; i < orderSize; i++) {
+            if (stepRabbit(order[i], energyGain, lossReproduction, birthThreshold)) {
+                births++;
+                add(newbornEnergy);
+            }
+        }
+        return births;
+    }
+
+    /**
+     * Moves a rabbit if it can, reproduces if it can and loses energy when it moves
+     * @param slot, the slot of the rabbit
+     * @param energyGain, the energy per grass a rabbit gains
+     * @param lossReproduction, the energy lost when it reproduces
+     * @param birthThreshold, the minimum energy with which a rabbit can reproduce
+     * @return true if it has reproduced, false otherwise
+     */
+    private boolean stepRabbit(int slot, int energyGain, int lossReproduction, int birthThreshold) {
+        return moveOrMate(slot, drawTarget(slot, rgSpace.getRandom()), energyGain, lossReproduction, birthThreshold);
+    }
+
+    /**
+     * Draws the cell a rabbit tries to move to, either north, west, south or east of it
+     * When rabbits forage, the cell is the one with the most grass within the foraging radius, as of the start of the step
+     * @param slot, the slot of the rabbit
+     * @param random, the random generator to draw the direction from
+     * @return the index of the target cell
+     */
+    private int drawTarget(int slot, SplittableRandom random) {
+        int newX = x[slot];
+        int newY = y[slot];
+        int v = rgSpace.getForagingRadius() > 0 ? rgSpace.richestDirection(newX, newY, random) : 1 + random.nextInt(4);
+        if (v == 1) {
+            newX++;
+        } else if (v == 2) {
+            newX--;
+        } else if (v == 3) {
+            newY++;
+        } else if (v == 4) {
+            newY--;
+        }
+        newX = (newX + sizeX) % sizeX;
+        newY = (newY + sizeY) % sizeY;
+        return newY * sizeX + newX;
+    }
+
+    /**
+     * Moves a rabbit to its target cell if it is empty, or reproduces with the rabbit in it
+     * @param slot, the slot of the rabbit
+     * @param target, the index of the target cell
+     * @param energyGain, the energy per grass a rabbit gains
+     * @param lossReproduction, the energy lost when it reproduces
+     * @param birthThreshold, the minimum energy with which a rabbit can reproduce
+     * @return true if it has reproduced, false otherwise
+     */
+    private boolean moveOrMate(int slot, int target, int energyGain, int lossReproduction, int birthThreshold) {
+        int other = slotAt[target] - 1;
+        if (other < 0) {
+            rgSpace.relocateCell(x[slot], y[slot], target % sizeX, target / sizeX);
+            moveTo(slot, target);
+            energy[slot] += energyGain * rgSpace.takeGrassAt(x[slot], y[slot]);
+            energy[slot]--;
+            return false;
+        }
+        return mate(slot, other, lossReproduction, birthThreshold);
+    }
+
+    /**
+     * Moves a rabbit to an empty cell, without telling the space
+     * @param slot, the slot of the rabbit
+     * @param target, the index of the cell
+     */
+    private void moveTo(int slot, int target) {
+        slotAt[y[slot] * sizeX + x[slot]] = 0;
+        slotAt[target] = slot + 1;
+        x[slot] = target % sizeX;
+        y[slot] = target / sizeX;
+    }
+
+    /**
+     * Indicates if a rabbit has reproduced with the rabbit it collided with (if both have enough energy)
+     * @param slot, the slot of the rabbit
+     * @param other, the slot of the rabbit it collided with
+     * @param lossReproduction, the energy lost when it reproduces
+     * @param birthThreshold, the minimum energy with which a rabbit can reproduce
+     * @return true if it has reproduced, false otherwise
+     */
+    private boolean mate(int slot, int other, int lossReproduction, int birthThreshold) {
+        if (other != slot && energy[slot] > birthThreshold && energy[other] > birthThreshold) {
+            //During a collision, both rabbits lose energy
+            energy[other] -= lossReproduction;
+            energy[slot] -= lossReproduction;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Performs a simulation step for every rabbit, the space being split into tiles stepped concurrently
+     * Each tile steps its own rabbits in a random order, with its own random generator split from the
+     * space one, so the result does not depend on the threads. A rabbit whose target cell is in another
+     * tile is deferred: deferred rabbits are stepped serially once every tile is done, in tile order.
+     * Moves inside the tiles, and the grass eaten, are logged and applied to the space serially too, as its
+     * free-cell index and its grass totals cannot be updated concurrently. As with the sequential step,
+     * foraging rabbits sense the grass as it was at the start of the step.
+     * Rabbits born during the step are placed at its end and are not stepped before the next tick.
+     * @param tilesPerSide, the number of tiles along each side of the space
+     * @param energyGain, the energy per grass a rabbit gains
+     * @param lossReproduction, the energy lost when it reproduces
+     * @param birthThreshold, the minimum energy with which a rabbit can reproduce
+     * @param newbornEnergy, the energy of a rabbit at birth
+     * @return the number of rabbits born
+     */
+    public int stepTiled(int tilesPerSide, final int energyGain, final int lossReproduction,
+                         final int birthThreshold, int newbornEnergy) {
+        //Tiles are at least 2 cells wide, so that some moves stay inside a tile
+        final int tilesX = Math.max(1, Math.min(tilesPerSide, sizeX / 2));
+        final int tilesY = Math.max(1, Math.min(tilesPerSide, sizeY / 2));
+        final int tileW = (sizeX + tilesX - 1) / tilesX;
+        final int tileH = (sizeY + tilesY - 1) / tilesY;
+        int tiles = tilesX * tilesY;
+
+        //Bucket the rabbits by tile
+        if (bucket.length < orderSize) {
+            bucket = new int[order.length];
+            targets = new int[order.length];
+            movedFrom = new int[order.length];
+            movedTo = new int[order.length];
+            movedFood = new int[order.length];
+        }
+        final int[] start = new int[tiles + 1];
+        for (int i = 0; i < orderSize; i++) {
+            int slot = order[i];
+            start[(y[slot] / tileH) * tilesX + x[slot] / tileW + 1]++;
+        }
+        for (int t = 0; t < tiles; t++) {
+            start[t + 1] += start[t];
+        }
+        int[] fill = Arrays.copyOf(start, tiles);
+        for (int i = 0; i < orderSize; i++) {
+            int slot = order[i];
+            bucket[fill[(y[slot] / tileH) * tilesX + x[slot] / tileW]++] = slot;
+        }
+
+        final SplittableRandom[] randoms = new SplittableRandom[tiles];
+        for (int t = 0; t < tiles; t++) {
+            randoms[t] = rgSpace.getRandom().split();
+        }
+        final int[] deferred = new int[tiles];
+        final int[] moves = new int[tiles];
+        final int[] births = new int[tiles];
+
+        //First phase: every tile steps the rabbits that stay inside it
+        IntStream.range(0, tiles).parallel().forEach(t -> {
+            SplittableRandom random = randoms[t];
+            int from = start[t];
+            int to = start[t + 1];
+            for (int i = to - 1; i > from; i--) {
+                int j = from + random.nextInt(i - from + 1);
+                int tmp = bucket[i];
+                bucket[i] = bucket[j];
+                bucket[j] = tmp;
+            }
+            int kept = 0;
+            for (int k = from; k < to; k++) {
+                int slot = bucket[k];
+                int target = drawTarget(slot, random);
+                int tx = target % sizeX;
+                int ty = target / sizeX;
+                if ((ty / tileH) * tilesX + tx / tileW != t) {
+                    bucket[from + kept] = slot;
+                    targets[from + kept] = target;
+                    kept++;
+                    continue;
+                }
+                int other = slotAt[target] - 1;
+                if (other < 0) {
+                    movedFrom[from + moves[t]] = y[slot] * sizeX + x[slot];
+                    movedTo[from + moves[t]] = target;
+                    int food = rgSpace.getCurrentGrassSpace().take(tx, ty);
+                    movedFood[from + moves[t]] = food;
+                    moves[t]++;
+                    moveTo(slot, target);
+                    energy[slot] += energyGain * food;
+                    energy[slot]--;
+                } else if (mate(slot, other, lossReproduction, birthThreshold)) {
+                    births[t]++;
+                }
+            }
+            deferred[t] = kept;
+        });
+
+        //Second phase: the rabbits crossing a tile edge, serially
+        int born = 0;
+        for (int t = 0; t < tiles; t++) {
+            born += births[t];
+        }
+        for (int t = 0; t < tiles; t++) {
+            for (int k = start[t]; k < start[t] + moves[t]; k++) {
+                rgSpace.relocateCell(movedFrom[k] % sizeX, movedFrom[k] / sizeX, movedTo[k] % sizeX, movedTo[k] / sizeX);
+                rgSpace.recordGrassTakenAt(movedTo[k] % sizeX, movedTo[k] / sizeX, movedFood[k]);
+            }
+        }
+        for (int t = 0; t < tiles; t++) {
+            for (int k = start[t]; k < start[t] + deferred[t]; k++) {
+                if (moveOrMate(bucket[k], targets[k], energyGain, lossReproduction, birthThreshold)) {
+                    born++;
+                }
+            }
+        }
+
+        for (int i = 0; i < born; i++) {
+            add(newbornEnergy);
+        }
+        return born;
+    }
+
+    /**
+     * Performs a simulation step for every rabbit at once, every rabbit seeing the population as it was at
+     * the start of the step, so that the rabbits can be stepped in parallel without any lock.
+     * Each rabbit draws its target cell and a priority from a hash of its ID and of a per-tick seed, so the
+     * result does not depend on the threads. A cell is claimed by the rabbit with the highest priority among
+     * the (at most 4) rabbits targeting it: the claimer moves in if the cell was empty, or tries to reproduce
+     * with its occupant; the other rabbits stay where they are. A rabbit can thus both reproduce and be
+     * reproduced with in the same step. As rabbits can only move into cells that were empty at the start of
+     * the step, crowded populations move, and so spend energy, less than with the sequential step.
+     * New positions and energies are written to back buffers, each rabbit writing its own slot only, and the
+     * buffers are swapped at the end. Moves and the grass eaten are applied to the space serially, as its
+     * free-cell index and its grass totals cannot be updated concurrently; foraging rabbits sense the grass as
+     * it was at the start of the step. Rabbits born during the step are placed at its end.
+     * @param energyGain, the energy per grass a rabbit gains
+     * @param lossReproduction, the energy lost when it reproduces
+     * @param birthThreshold, the minimum energy with which a rabbit can reproduce
+     * @param newbornEnergy, the energy of a rabbit at birth
+     * @return the number of rabbits born
+     */
+    public int stepSynchronous(final int energyGain, final int lossReproduction, final int birthThreshold,
+                               int newbornEnergy) {
+        if (backX.length != x.length) {
+            backX = new int[x.length];
+            backY = new int[x.length];
+            backEnergy = new int[x.length];
+            intent = new int[x.length];
+            priority = new long[x.length];
+            outcome = new byte[x.length];
+            eaten = new int[x.length];
+        }
+        final long tickSeed = rgSpace.getRandom().nextLong();
+        final boolean foraging = rgSpace.getForagingRadius() > 0;
+        final RabbitsGrassField grass = rgSpace.getCurrentGrassSpace();
+
+        //First pass: every rabbit draws its intent against the front buffers
+        IntStream.range(0, orderSize).parallel().forEach(i -> {
+            int slot = order[i];
+            long h = mix(tickSeed + id[slot] * 0x9E3779B97F4A7C15L);
+            priority[slot] = mix(h);
+            int v = foraging ? rgSpace.richestDirection(x[slot], y[slot], new SplittableRandom(h)) : 1 + (int) (h >>> 62);
+            intent[slot] = neighbour(x[slot], y[slot], v);
+        });
+
+        //Second pass: every rabbit finds out if it claims its target cell
+        IntStream.range(0, orderSize).parallel().forEach(i -> {
+            int slot = order[i];
+            int target = intent[slot];
+            boolean claims = true;
+            for (int v = 1; v <= 4 && claims; v++) {
+                int other = slotAt[neighbour(target % sizeX, target / sizeX, v)] - 1;
+                if (other >= 0 && other != slot && intent[other] == target && before(other, slot)) {
+                    claims = false;
+                }
+            }
+            int other = slotAt[target] - 1;
+            if (!claims) {
+                outcome[slot] = STAYED;
+            } else if (other < 0) {
+                outcome[slot] = MOVED;
+            } else if (other != slot && energy[slot] > birthThreshold && energy[other] > birthThreshold) {
+                outcome[slot] = MATED;
+            } else {
+                outcome[slot] = STAYED;
+            }
+        });
+
+        //Third pass: every rabbit writes its new state to the back buffers
+        IntStream.range(0, orderSize).parallel().forEach(i -> {
+            int slot = order[i];
+            int e = energy[slot];
+            int cell = y[slot] * sizeX + x[slot];
+            int food = 0;
+            int target = cell;
+            if (outcome[slot] == MOVED) {
+                target = intent[slot];
+                food = grass.take(target % sizeX, target / sizeX);
+                e += energyGain * food - 1;
+            } else if (outcome[slot] == MATED) {
+                e -= lossReproduction;
+            }
+            //The rabbit that claimed this cell may have reproduced with this one
+            for (int v = 1; v <= 4; v++) {
+                int other = slotAt[neighbour(x[slot], y[slot], v)] - 1;
+                if (other >= 0 && intent[other] == cell && outcome[other] == MATED) {
+                    e -= lossReproduction;
+                    break;
+                }
+            }
+            backX[slot] = target % sizeX;
+            backY[slot] = target / sizeX;
+            backEnergy[slot] = e;
+            eaten[slot] = food;
+        });
+
+        //Apply the moves to the space and count the births, serially
+        int born = 0;
+        for (int i = 0; i < orderSize; i++) {
+            int slot = order[i];
+            if (outcome[slot] == MOVED) {
+                slotAt[y[slot] * sizeX + x[slot]] = 0;
+            } else if (outcome[slot] == MATED) {
+                born++;
+            }
+        }
+        for (int i = 0; i < orderSize; i++) {
+            int slot = order[i];
+            if (outcome[slot] == MOVED) {
+                slotAt[backY[slot] * sizeX + backX[slot]] = slot + 1;
+                rgSpace.relocateCell(x[slot], y[slot], backX[slot], backY[slot]);
+                rgSpace.recordGrassTakenAt(backX[slot], backY[slot], eaten[slot]);
+            }
+        }
+        int[] swap = x;
+        x = backX;
+        backX = swap;
+        swap = y;
+        y = backY;
+        backY = swap;
+        swap = energy;
+        energy = backEnergy;
+        backEnergy = swap;
+
+        for (int i = 0; i < born; i++) {
+            add(newbornEnergy);
+        }
+        return born;
+    }
+
+    /**
+     * Returns the index of the cell next to a cell, in a direction
+     * @param cx, the x position of the cell
+     * @param cy, the y position of the cell
+     * @param v, 1 (east, x + 1), 2 (west, x - 1), 3 (south, y + 1) or 4 (north, y - 1)
+     * @return the index of the neighbour cell
+     */
+    private int neighbour(int cx, int cy, int v) {
+        if (v == 1) {
+            cx = cx + 1 == sizeX ? 0 : cx + 1;
+        } else if (v == 2) {
+            cx = cx == 0 ? sizeX - 1 : cx - 1;
+        } else if (v == 3) {
+            cy = cy + 1 == sizeY ? 0 : cy + 1;
+        } else {
+            cy = cy == 0 ? sizeY - 1 : cy - 1;
+        }
+        return cy * sizeX + cx;
+    }
+
+    /**
+     * Indicates if a rabbit claims a cell before another one in the synchronous step
+     * @param a, the slot of a rabbit
+     * @param b, the slot of the other rabbit
+     * @return true if a has the highest priority, or the lowest ID on a tie
+     */
+    private boolean before(int a, int b) {
+        return priority[a] > priority[b] || (priority[a] == priority[b] && id[a] < id[b]);
+    }
+
+    /**
+     * Mixes the bits of a 64-bit value (the finalizer of SplitMix64)
+     * @param z, the value
+     * @return the mixed value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Shuffles the stepping order
+     */
+    private void shuffle() {
+        SplittableRandom random = rgSpace.getRandom();
+        for (int i = orderSize - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+    }
+
+    /**
+     * Removes the dead rabbits from the space and recycles their slots
+     * @return the number of dead rabbits
+     */
+    public int reapDead() {
+        int kept = 0;
+        for (int i = 0; i < orderSize; i++) {
+            int slot = order[i];
+            if (energy[slot] < 1) {
+                slotAt[y[slot] * sizeX + x[slot]] = 0;
+                rgSpace.vacateCell(x[slot], y[slot]);
+                id[slot] = 0;
+                freeSlots[freeCount++] = slot;
+            } else {
+                order[kept++] = slot;
+            }
+        }
+        int dead = orderSize - kept;
+        orderSize = kept;
+        return dead;
+    }
+
+    /**
+     * Counts the living rabbits
+     * @return the total number of rabbits with energy left
+     */
+    public int countLiving() {
+        int living = 0;
+        for (int i = 0; i < orderSize; i++) {
+            if (energy[order[i]] > 0) living++;
+        }
+        return living;
+    }
+
+    /**
+     * Logs the ID, position and energy of every rabbit sampled at this tick
+     * @param tick, the current tick
+     * @param log, the logger of the model
+     */
+    public void report(long tick, RabbitsGrassLog log) {
+        if (!log.isTickSampled(tick)) {
+            return;
+        }
+        for (int i = 0; i < orderSize; i++) {
+            int slot = order[i];
+            log.rabbit(tick, id[slot], x[slot], y[slot], energy[slot]);
+        }
+    }
+
+    /**
+     * Returns a grid view of the population, to be drawn by an Object2DDisplay
+     * Drawable views are only created for the cells that are asked for
+     * @param sprites, the sprites the rabbits are drawn with
+     * @return the display grid
+     */
+    public RabbitsGrassPopulationDisplay getDisplayGrid(RabbitsGrassSprites sprites) {
+        return new RabbitsGrassPopulationDisplay(this, sizeX, sizeY, sprites);
+    }
+}
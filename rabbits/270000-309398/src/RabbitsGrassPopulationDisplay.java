@@ -0,0 +1,121 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import uchicago.src.sim.gui.Drawable;
+import uchicago.src.sim.gui.SimGraphics;
+
+/**
+ * Adapter that exposes a RabbitsGrassPopulation as a grid, so that it can be drawn by an Object2DDisplay.
+ * It stores nothing: a Drawable view is only created when a cell holding a rabbit is asked for, and the
+ * display draws the rabbits from getObjectList() instead of visiting every cell.
+ * @author
+ */
+public class RabbitsGrassPopulationDisplay extends RabbitsGrassGridView {
+
+    private final RabbitsGrassPopulation population;
+    private final RabbitsGrassSprites sprites;
+
+    /**
+     * Class constructor
+     * @param population, the population to display
+     * @param sizeX, width of the space
+     * @param sizeY, height of the space
+     * @param sprites, the sprites of the model the population belongs to
+     */
+    public RabbitsGrassPopulationDisplay(RabbitsGrassPopulation population, int sizeX, int sizeY, RabbitsGrassSprites sprites) {
+        super(sizeX, sizeY);
+        this.population = population;
+        this.sprites = sprites;
+    }
+
+    /**
+     * Returns the rabbits as Drawable views, to be given to Object2DDisplay.setObjectList
+     * The views are created from the population each time the collection is iterated
+     * @return the live collection of the rabbits
+     */
+    public Collection<Drawable> getObjectList() {
+        return new AbstractCollection<Drawable>() {
+            public int size() {
+                return population.size();
+            }
+
+            public Iterator<Drawable> iterator() {
+                return new Iterator<Drawable>() {
+                    private int i;
+
+                    public boolean hasNext() {
+                        return i < population.size();
+                    }
+
+                    public Drawable next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int slot = population.getSlot(i++);
+                        return new RabbitView(population.getX(slot), population.getY(slot), population.getEnergy(slot), sprites);
+                    }
+                };
+            }
+        };
+    }
+
+    public Object getObjectAt(int x, int y) {
+        int slot = population.getSlotAt(x, y);
+        if (slot < 0) {
+            return null;
+        }
+        return new RabbitView(population.getX(slot), population.getY(slot), population.getEnergy(slot), sprites);
+    }
+
+    public double getValueAt(int x, int y) {
+        int slot = population.getSlotAt(x, y);
+        return slot < 0 ? 0 : population.getEnergy(slot);
+    }
+
+    /**
+     * Drawable snapshot of one rabbit of the population
+     */
+    static class RabbitView implements Drawable {
+
+        private final int x;
+        private final int y;
+        private final int energy;
+        private final RabbitsGrassSprites sprites;
+
+        RabbitView(int x, int y, int energy, RabbitsGrassSprites sprites) {
+            this.x = x;
+            this.y = y;
+            this.energy = energy;
+            this.sprites = sprites;
+        }
+
+        public void draw(SimGraphics arg0) {
+            BufferedImage img = sprites.getSprite(energy, arg0.getCurWidth(), arg0.getCurHeight());
+            if (img != null) {
+                arg0.drawImage(img);
+            }
+            else {
+                if(energy > 4)
+                    arg0.drawFastRoundRect(Color.blue);
+                else
+                    arg0.drawFastRoundRect(Color.red);
+            }
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getEnergy() {
+            return energy;
+        }
+    }
+}
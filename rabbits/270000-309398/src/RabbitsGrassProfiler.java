@@ -0,0 +1,213 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import uchicago.src.sim.engine.BasicAction;
+
+/**
+ * Class that measures the scheduled actions of the rabbits grass simulation: number of calls, total and
+ * maximum wall time, and bytes allocated by the thread running them. It logs a report every interval of
+ * ticks and a summary of the whole run.
+ *
+ * Allocation is read from com.sun.management.ThreadMXBean where the JVM supports it, and only counts the
+ * thread running the action: allocations of the worker threads of the tiled step are not included.
+ * When profiling is disabled, no profiler exists and actions are scheduled as they are.
+ * @author
+ */
+public class RabbitsGrassProfiler {
+
+    /**
+     * Measures of one action
+     */
+    public static class Section {
+
+        private final String name;
+        private final RabbitsGrassProfiler profiler;
+
+        //Current interval
+        private long calls;
+        private long nanos;
+        private long maxNanos;
+        private long bytes;
+
+        //Whole run, without the current interval
+        private long totalCalls;
+        private long totalNanos;
+        private long totalMaxNanos;
+        private long totalBytes;
+
+        private long startNanos;
+        private long startBytes;
+
+        Section(String name, RabbitsGrassProfiler profiler) {
+            this.name = name;
+            this.profiler = profiler;
+        }
+
+        /**
+         * Starts measuring a call
+         */
+        public void begin() {
+            startBytes = profiler.allocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+        /**
+         * Stops measuring a call
+         */
+        public void end() {
+            long elapsed = System.nanoTime() - startNanos;
+            long allocated = profiler.allocatedBytes() - startBytes;
+            calls++;
+            nanos += elapsed;
+            if (elapsed > maxNanos) {
+                maxNanos = elapsed;
+            }
+            bytes += allocated;
+        }
+
+        private void closeInterval() {
+            totalCalls += calls;
+            totalNanos += nanos;
+            totalMaxNanos = Math.max(totalMaxNanos, maxNanos);
+            totalBytes += bytes;
+            calls = 0;
+            nanos = 0;
+            maxNanos = 0;
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Schedulable action that measures the action it wraps
+     */
+    static class ProfiledAction extends BasicAction {
+
+        private final BasicAction action;
+        private final Section section;
+
+        ProfiledAction(BasicAction action, Section section) {
+            this.action = action;
+            this.section = section;
+        }
+
+        public void execute() {
+            section.begin();
+            try {
+                action.execute();
+            } finally {
+                section.end();
+            }
+        }
+    }
+
+    private final int reportInterval;
+    private final RabbitsGrassLog log;
+    private final Map<String, Section> sections = new LinkedHashMap<String, Section>();
+    private final com.sun.management.ThreadMXBean threads;
+    private long intervalStart = 1;
+
+    /**
+     * Class constructor
+     * @param reportInterval, the number of ticks between two reports
+     * @param log, the logger the reports are written to
+     */
+    public RabbitsGrassProfiler(int reportInterval, RabbitsGrassLog log) {
+        this.reportInterval = Math.max(reportInterval, 1);
+        this.log = log;
+        com.sun.management.ThreadMXBean bean = null;
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            } else {
+                bean = null;
+            }
+        }
+        threads = bean;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread
+     * @return the allocated bytes, 0 if the JVM cannot tell
+     */
+    private long allocatedBytes() {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Returns the measures of an action, created on first use
+     * @param name, the name of the action
+     * @return the section of the action
+     */
+    public Section section(String name) {
+        Section s = sections.get(name);
+        if (s == null) {
+            s = new Section(name, this);
+            sections.put(name, s);
+        }
+        return s;
+    }
+
+    /**
+     * Wraps an action so that its calls are measured
+     * @param name, the name of the action in the reports
+     * @param action, the action to measure
+     * @return the wrapped action, to be scheduled instead
+     */
+    public BasicAction wrap(String name, BasicAction action) {
+        return new ProfiledAction(action, section(name));
+    }
+
+    /**
+     * Called at the end of every tick, logs a report at the end of every interval
+     * @param tick, the tick that just ended
+     */
+    public void endTick(long tick) {
+        if (tick - intervalStart + 1 < reportInterval) {
+            return;
+        }
+        StringBuilder report = new StringBuilder("Profile of ticks " + intervalStart + "-" + tick + ":");
+        for (Section s : sections.values()) {
+            if (s.calls > 0) {
+                report.append("\n  ").append(format(s.name, s.calls, s.nanos, s.maxNanos, s.bytes));
+            }
+            s.closeInterval();
+        }
+        log.info(report.toString());
+        intervalStart = tick + 1;
+    }
+
+    /**
+     * Logs the measures of the whole run, slowest action first
+     */
+    public void summary() {
+        List<Section> sorted = new ArrayList<Section>(sections.values());
+        for (Section s : sorted) {
+            s.closeInterval();
+        }
+        Collections.sort(sorted, new Comparator<Section>() {
+            public int compare(Section a, Section b) {
+                return Long.compare(b.totalNanos, a.totalNanos);
+            }
+        });
+        StringBuilder report = new StringBuilder("Profile of the run:");
+        for (Section s : sorted) {
+            if (s.totalCalls == 0) {
+                continue;
+            }
+            report.append("\n  ").append(format(s.name, s.totalCalls, s.totalNanos, s.totalMaxNanos, s.totalBytes));
+        }
+        log.info(report.toString());
+    }
+
+    private String format(String name, long calls, long nanos, long maxNanos, long bytes) {
+        String allocation = threads == null ? "allocation n/a" : (bytes / calls) + " B/call";
+        return String.format("%-32s %8d calls %10.3f ms total %8.1f us/call %8.1f us max  %s",
+                name, calls, nanos / 1e6, nanos / 1e3 / calls, maxNanos / 1e3, allocation);
+    }
+}
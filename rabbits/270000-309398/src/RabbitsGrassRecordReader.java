@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class that streams back a file written by RabbitsGrassRecorder.
+ * Only one block of records is mapped at a time, so files of any length can be read.
+ * It is a cursor: next() moves to the following record, whose values are then read with the getters.
+ * @author
+ */
+public class RabbitsGrassRecordReader {
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long records;
+    private MappedByteBuffer block;
+    private long position = -1;
+
+    /**
+     * Class constructor
+     * @param fileName, the file to read
+     * @throws IOException if the file cannot be read or is not a record file
+     */
+    public RabbitsGrassRecordReader(String fileName) throws IOException {
+        file = new RandomAccessFile(fileName, "r");
+        channel = file.getChannel();
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, RabbitsGrassRecorder.HEADER_BYTES);
+        if (header.getInt(0) != RabbitsGrassRecorder.MAGIC || header.getInt(4) != RabbitsGrassRecorder.VERSION
+                || header.getInt(8) != RabbitsGrassRecorder.BLOCK_RECORDS) {
+            close();
+            throw new IOException(fileName + " is not a rabbits grass record file");
+        }
+        records = header.getLong(RabbitsGrassRecorder.COUNT_OFFSET);
+    }
+
+    /**
+     * Main function, prints a record file as CSV
+     * @param args, the file to print
+     */
+    public static void main(String[] args) throws IOException {
+        RabbitsGrassRecordReader reader = new RabbitsGrassRecordReader(args[0]);
+        try {
+            System.out.println("tick,rabbits,grass,births,deaths");
+            while (reader.next()) {
+                System.out.println(reader.getTick() + "," + reader.getRabbits() + "," + reader.getGrass() + ","
+                        + reader.getBirths() + "," + reader.getDeaths());
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Getter for the number of records in the file
+     * @return records
+     */
+    public long size() {
+        return records;
+    }
+
+    /**
+     * Moves to the next record
+     * @return true if there is a next record, false at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    public boolean next() throws IOException {
+        if (position + 1 >= records) {
+            return false;
+        }
+        position++;
+        if (position % RabbitsGrassRecorder.BLOCK_RECORDS == 0) {
+            long offset = RabbitsGrassRecorder.HEADER_BYTES
+                    + (position / RabbitsGrassRecorder.BLOCK_RECORDS) * RabbitsGrassRecorder.BLOCK_BYTES;
+            block = channel.map(FileChannel.MapMode.READ_ONLY, offset, RabbitsGrassRecorder.BLOCK_BYTES);
+        }
+        return true;
+    }
+
+    private int index() {
+        return (int) (position % RabbitsGrassRecorder.BLOCK_RECORDS);
+    }
+
+    /**
+     * Getter for the tick of the current record
+     * @return tick
+     */
+    public long getTick() {
+        return block.getLong(RabbitsGrassRecorder.TICK_COLUMN + 8 * index());
+    }
+
+    /**
+     * Getter for the number of rabbits of the current record
+     * @return rabbits
+     */
+    public int getRabbits() {
+        return block.getInt(RabbitsGrassRecorder.RABBITS_COLUMN + 4 * index());
+    }
+
+    /**
+     * Getter for the total grass of the current record
+     * @return grass
+     */
+    public int getGrass() {
+        return block.getInt(RabbitsGrassRecorder.GRASS_COLUMN + 4 * index());
+    }
+
+    /**
+     * Getter for the births of the current record
+     * @return births
+     */
+    public int getBirths() {
+        return block.getInt(RabbitsGrassRecorder.BIRTHS_COLUMN + 4 * index());
+    }
+
+    /**
+     * Getter for the deaths of the current record
+     * @return deaths
+     */
+    public int getDeaths() {
+        return block.getInt(RabbitsGrassRecorder.DEATHS_COLUMN + 4 * index());
+    }
+
+    /**
+     * Closes the file
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        channel.close();
+        file.close();
+    }
+}
@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Class that records the population of the rabbits grass simulation, one record per tick,
+ * in a memory-mapped binary file read back by RabbitsGrassRecordReader.
+ *
+ * The file is a header followed by blocks of BLOCK_RECORDS records. Inside a block, the records are
+ * stored by column: the ticks, then the rabbits, the grass, the births and the deaths.
+ * The header holds the number of records written so far, so a file cut by a crash is still readable.
+ * @author
+ */
+public class RabbitsGrassRecorder {
+
+    public static final int MAGIC = 0x52475453; // "RGTS"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 64;
+    public static final int BLOCK_RECORDS = 4096;
+
+    //Byte offset of each column inside a block
+    public static final int TICK_COLUMN = 0;
+    public static final int RABBITS_COLUMN = TICK_COLUMN + 8 * BLOCK_RECORDS;
+    public static final int GRASS_COLUMN = RABBITS_COLUMN + 4 * BLOCK_RECORDS;
+    public static final int BIRTHS_COLUMN = GRASS_COLUMN + 4 * BLOCK_RECORDS;
+    public static final int DEATHS_COLUMN = BIRTHS_COLUMN + 4 * BLOCK_RECORDS;
+    public static final int BLOCK_BYTES = DEATHS_COLUMN + 4 * BLOCK_RECORDS;
+
+    //Offset of the record count in the header
+    public static final int COUNT_OFFSET = 16;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer block;
+    private long blockOffset;
+    private long records;
+
+    /**
+     * Class constructor, creates or truncates the file
+     * @param fileName, the file to record to
+     * @throws IOException if the file cannot be created
+     */
+    public RabbitsGrassRecorder(String fileName) throws IOException {
+        file = new RandomAccessFile(fileName, "rw");
+        file.setLength(0);
+        channel = file.getChannel();
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, BLOCK_RECORDS);
+        header.putLong(COUNT_OFFSET, 0);
+    }
+
+    /**
+     * Class constructor for a run restored from a checkpoint: reopens the file, keeps its records up to
+     * the tick of the snapshot and appends after them. A missing or empty file is created.
+     * @param fileName, the file to record to
+     * @param lastTick, the tick of the snapshot, records of later ticks are dropped
+     * @throws IOException if the file cannot be opened, or is not a record file and would be overwritten
+     */
+    public RabbitsGrassRecorder(String fileName, long lastTick) throws IOException {
+        file = new RandomAccessFile(fileName, "rw");
+        if (file.length() == 0) {
+            file.setLength(HEADER_BYTES);
+        } else if (file.length() < HEADER_BYTES) {
+            file.close();
+            throw new IOException(fileName + " is not a rabbits grass record file, refusing to overwrite it");
+        }
+        channel = file.getChannel();
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        long count = header.getLong(COUNT_OFFSET);
+        if (header.getInt(0) == 0 && count == 0) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, BLOCK_RECORDS);
+        } else if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != BLOCK_RECORDS
+                || count < 0 || file.length() < HEADER_BYTES + ((count + BLOCK_RECORDS - 1) / BLOCK_RECORDS) * BLOCK_BYTES) {
+            channel.close();
+            file.close();
+            throw new IOException(fileName + " is not a rabbits grass record file, refusing to overwrite it");
+        }
+        //Ticks are recorded in increasing order, so the records to keep are a prefix of the file
+        records = count;
+        while (records > 0 && tickAt(records - 1) > lastTick) {
+            records--;
+        }
+        header.putLong(COUNT_OFFSET, records);
+        block = null;
+        file.setLength(HEADER_BYTES + ((records + BLOCK_RECORDS - 1) / BLOCK_RECORDS) * BLOCK_BYTES);
+    }
+
+    /**
+     * Reads the tick of a record already in the file
+     * @param record, the index of the record
+     * @return the tick of the record
+     * @throws IOException if the file cannot be read
+     */
+    private long tickAt(long record) throws IOException {
+        long offset = HEADER_BYTES + (record / BLOCK_RECORDS) * BLOCK_BYTES;
+        if (block == null || blockOffset != offset) {
+            block = channel.map(FileChannel.MapMode.READ_WRITE, offset, BLOCK_BYTES);
+            blockOffset = offset;
+        }
+        return block.getLong(TICK_COLUMN + 8 * (int) (record % BLOCK_RECORDS));
+    }
+
+    /**
+     * Appends the record of a tick
+     * @param tick, the tick
+     * @param rabbits, the number of rabbits
+     * @param grass, the total grass
+     * @param births, the number of rabbits born during the tick
+     * @param deaths, the number of rabbits dead during the tick
+     * @throws IOException if the file cannot grow
+     */
+    public void append(long tick, int rabbits, int grass, int births, int deaths) throws IOException {
+        int i = (int) (records % BLOCK_RECORDS);
+        long offset = HEADER_BYTES + (records / BLOCK_RECORDS) * BLOCK_BYTES;
+        if (i == 0 || block == null || blockOffset != offset) {
+            block = channel.map(FileChannel.MapMode.READ_WRITE, offset, BLOCK_BYTES);
+            blockOffset = offset;
+        }
+        block.putLong(TICK_COLUMN + 8 * i, tick);
+        block.putInt(RABBITS_COLUMN + 4 * i, rabbits);
+        block.putInt(GRASS_COLUMN + 4 * i, grass);
+        block.putInt(BIRTHS_COLUMN + 4 * i, births);
+        block.putInt(DEATHS_COLUMN + 4 * i, deaths);
+        records++;
+        header.putLong(COUNT_OFFSET, records);
+    }
+
+    /**
+     * Getter for the number of records written
+     * @return records
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Flushes the records and closes the file
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        if (block != null) {
+            block.force();
+        }
+        header.force();
+        channel.close();
+        file.close();
+    }
+}
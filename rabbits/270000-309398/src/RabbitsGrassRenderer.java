@@ -0,0 +1,206 @@
+import uchicago.src.sim.gui.DisplaySurface;
+
+/**
+ * Class that draws the display of the rabbits grass simulation in its own thread, at a fixed frame rate,
+ * so that the simulation never waits for the display.
+ *
+ * The renderer owns two frames. It draws the front one, while the simulation copies the space into the
+ * back one. When it is time for a new frame, the renderer asks for one; the simulation fills the back frame
+ * at the end of its next step and hands it over, and the renderer swaps the two frames and draws.
+ * Steps during which no frame was asked for are not copied at all: those frames are dropped.
+ * @author
+ */
+public class RabbitsGrassRenderer implements Runnable {
+
+    /**
+     * Snapshot of the space drawn by the renderer
+     */
+    static class Frame {
+
+        //Grass of every cell, row-major
+        final int[] grass;
+        //Energy of the rabbit of every cell, row-major, 0 for an empty cell
+        final int[] rabbits;
+        long tick;
+
+        Frame(int cells) {
+            grass = new int[cells];
+            rabbits = new int[cells];
+        }
+    }
+
+    private final RabbitsGrassSimulationSpace space;
+    private final DisplaySurface surface;
+    private final RabbitsGrassLog log;
+    private final long frameNanos;
+    private final int sizeX;
+    private final int sizeY;
+
+    private Frame front;
+    private Frame back;
+
+    //Set by the renderer when it wants a new frame, cleared by the simulation once the back frame is filled
+    private volatile boolean wanted;
+    //Set by the simulation when the back frame is filled, guarded by handOff
+    private boolean ready;
+    private final Object handOff = new Object();
+
+    private volatile boolean running;
+    private Thread thread;
+
+    private volatile long drawn;
+    private volatile long dropped;
+
+    /**
+     * Class constructor
+     * @param space, the space to draw
+     * @param surface, the display surface, whose displayables read the front frame
+     * @param framesPerSecond, the frame rate
+     * @param log, the logger of the model
+     */
+    public RabbitsGrassRenderer(RabbitsGrassSimulationSpace space, DisplaySurface surface, int framesPerSecond, RabbitsGrassLog log) {
+        if (framesPerSecond <= 0) {
+            throw new IllegalArgumentException("The frame rate must be positive, got " + framesPerSecond);
+        }
+        this.space = space;
+        this.surface = surface;
+        this.log = log;
+        this.frameNanos = 1000000000L / framesPerSecond;
+        sizeX = space.getSizeX();
+        sizeY = space.getSizeY();
+        front = new Frame(sizeX * sizeY);
+        back = new Frame(sizeX * sizeY);
+    }
+
+    /**
+     * Getter for the width of the frames
+     * @return sizeX
+     */
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    /**
+     * Getter for the height of the frames
+     * @return sizeY
+     */
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    /**
+     * Returns the frame being drawn, to be read by the displayables of the surface
+     * @return the front frame
+     */
+    Frame getFront() {
+        return front;
+    }
+
+    /**
+     * Getter for the number of frames drawn
+     * @return drawn
+     */
+    public long getDrawn() {
+        return drawn;
+    }
+
+    /**
+     * Getter for the number of steps that were not drawn because the renderer did not ask for them
+     * @return dropped
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Starts the renderer thread, with a first frame of the current space
+     * @param tick, the current tick
+     */
+    public void start(long tick) {
+        space.snapshot(front.grass, front.rabbits);
+        front.tick = tick;
+        running = true;
+        thread = new Thread(this, "RabbitsGrassRenderer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Called by the simulation at the end of every step: copies the space into the back frame if the
+     * renderer asked for a frame, and drops the step otherwise
+     * @param tick, the tick that just ended
+     */
+    public void publish(long tick) {
+        if (!wanted) {
+            dropped++;
+            return;
+        }
+        wanted = false;
+        space.snapshot(back.grass, back.rabbits);
+        back.tick = tick;
+        synchronized (handOff) {
+            ready = true;
+            handOff.notifyAll();
+        }
+    }
+
+    /**
+     * Stops the renderer thread, waiting for the frame being drawn
+     */
+    public void stop() {
+        running = false;
+        synchronized (handOff) {
+            handOff.notifyAll();
+        }
+        if (thread != null) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+        log.info("Renderer drew " + drawn + " frames, dropped " + dropped);
+    }
+
+    /**
+     * Renderer loop: waits for the time of the next frame, asks the simulation for it, then draws it
+     */
+    public void run() {
+        long next = System.nanoTime();
+        surface.updateDisplay();
+        while (running) {
+            next += frameNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            } else {
+                //Drawing is slower than the frame rate, do not try to catch up
+                next = System.nanoTime();
+            }
+            wanted = true;
+            synchronized (handOff) {
+                while (!ready && running) {
+                    try {
+                        handOff.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                ready = false;
+            }
+            Frame drawing = back;
+            back = front;
+            front = drawing;
+            surface.updateDisplay();
+            drawn++;
+        }
+    }
+}
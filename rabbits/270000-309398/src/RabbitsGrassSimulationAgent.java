@@ -1,12 +1,8 @@
 import java.awt.Color;
-import java.io.IOException;
 import java.util.Map;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import javax.imageio.ImageIO;
 import java.awt.Graphics;
 
-import uchicago.src.sim.space.Object2DGrid;
 import uchicago.src.sim.gui.Drawable;
 import uchicago.src.sim.gui.SimGraphics;
 
@@ -28,41 +24,38 @@ public class RabbitsGrassSimulationAgent implements Drawable {
 
 	private int energy;
 
-	private static int IDNumber = 0;
 	private int ID;
 	private RabbitsGrassSimulationSpace rgSpace;
-	private BufferedImage img;
+	private RabbitsGrassSprites sprites;
 	private Graphics g;
 
 	/**
 	 * Class constructor
 	 * @param minEnergy, the minimum energy at birth of the rabbit
+	 * @param id, the ID of the rabbit, unique within its model
 	 */
-	public RabbitsGrassSimulationAgent(int minEnergy){
-		try {
-			img = ImageIO.read(new File("img/rabbit.png"));
-			//System.out.println("image read succesfull");
-		} catch (IOException e) {
-			System.out.println("image read not succesfull");
-
-		}
+	public RabbitsGrassSimulationAgent(int minEnergy, int id){
 		x = -1;
 		y = -1;
 		energy = minEnergy;
-		setVxVy();
-		IDNumber++;
-		ID = IDNumber;
+		ID = id;
 	}
 
 	/**
 	 * Sets the rabbit speed direction, either north, west, south or east
+	 * The direction is drawn from the random generator of the space, or, when rabbits forage,
+	 * is the one towards the most grass within the foraging radius, as of the start of the step
 	 */
 	private void setVxVy(){
 		vX = 0;
 		vY = 0;
 		int v = 0;
 		//The rabbit either moves in the x direction or the y direction
-		v = (int)Math.ceil(Math.random() * 4);
+		if (rgSpace.getForagingRadius() > 0) {
+			v = rgSpace.richestDirection(x, y, rgSpace.getRandom());
+		} else {
+			v = 1 + rgSpace.getRandom().nextInt(4);
+		}
 
 		//We randomly chose a direction
 		if (v == 1) {
@@ -103,6 +96,14 @@ public class RabbitsGrassSimulationAgent implements Drawable {
 		return "A-" + ID;
 	}
 
+	/**
+	 * Getter for the numeric ID of the rabbit
+	 * @return the ID
+	 */
+	public int getIDNumber(){
+		return ID;
+	}
+
 	/**
 	 * Getter for the energy
 	 * @return energy
@@ -112,23 +113,30 @@ public class RabbitsGrassSimulationAgent implements Drawable {
 	}
 
 	/**
-	 * Prints the ID, position and energy of the rabbit
+	 * Logs the ID, position and energy of the rabbit, if it is sampled at this tick
+	 * @param tick, the current tick
+	 * @param log, the logger of the model
+	 */
+	public void report(long tick, RabbitsGrassLog log) {
+		log.rabbit(tick, ID, x, y, energy);
+	}
+
+	/**
+	 * Setter for the sprites the rabbit is drawn with
+	 * @param sprites, the sprites of the model, null to draw the rabbit with a color
 	 */
-	public void report() {
-		System.out.println(getID() +
-				" at " +
-				x + ", " + y +
-				" has " +
-				getEnergy() + " energy.");
+	public void setSprites(RabbitsGrassSprites sprites) {
+		this.sprites = sprites;
 	}
 
 	/**
-	 * Draws the rabbit either with a buffered image if found, either with a color
+	 * Draws the rabbit either with the shared sprite of its energy tier if found, either with a color
 	 * @param arg0, the SimGraphics that draws the rabbit
 	 */
 	public void draw(SimGraphics arg0) {
+		BufferedImage img = sprites == null ? null : sprites.getSprite(energy, arg0.getCurWidth(), arg0.getCurHeight());
 		if (img != null) {
-			arg0.drawImageToFit(img);
+			arg0.drawImage(img);
 		}
 		else {
 			if(energy > 4)
@@ -167,9 +175,8 @@ public class RabbitsGrassSimulationAgent implements Drawable {
 		int newX = x + vX;
 		int newY = y + vY;
 		boolean retVal = false;
-		Object2DGrid grid = rgSpace.getCurrentAgentSpace();
-		newX = (newX + grid.getSizeX()) % grid.getSizeX();
-		newY = (newY + grid.getSizeY()) % grid.getSizeY();
+		newX = (newX + rgSpace.getSizeX()) % rgSpace.getSizeX();
+		newY = (newY + rgSpace.getSizeY()) % rgSpace.getSizeY();
 
 		if (tryMove(newX, newY)) {
 			receiveEnergy(energyGain * rgSpace.takeGrassAt(x, y));
@@ -1,5 +1,15 @@
 import java.awt.Color;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.management.JMException;
 
 import uchicago.src.sim.analysis.DataSource;
 import uchicago.src.sim.analysis.OpenSequenceGraph;
@@ -14,7 +24,6 @@ import uchicago.src.sim.gui.DisplaySurface;
 import uchicago.src.sim.gui.ColorMap;
 import uchicago.src.sim.gui.Object2DDisplay;
 import uchicago.src.sim.gui.Value2DDisplay;
-import uchicago.src.sim.util.SimUtilities;
 
 /**
  * Class that implements the simulation model for the rabbits grass
@@ -48,14 +57,73 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 		private int numInitEnergy = RABBIT_INIT_ENERGY;
 		private int lossReproduction = LOSSREPRODUCTION;
 		private int energyPerGrass = ENERGYPERGRASS;
-
-		private ArrayList agentList;
+		private boolean debug = false;
+		private boolean compactPopulation = false;
+		private boolean headless = false;
+		private long seed = 0;
+		//Seed of the current run: the Seed parameter, or a seed chosen when the model is built if it is 0
+		private long runSeed;
+		private int stepTiles = 1;
+		private boolean synchronousStep = false;
+		private int grassGrowthMode = RabbitsGrassGrowth.SCATTER;
+		private int foragingRadius = 0;
+		private int renderFPS = 0;
+		private boolean sparseWorld = false;
+		private int profileInterval = 0;
+		private int stopWindow = 0;
+		private double stopTolerance = 0.05;
+
+		//Tells when the run can stop early when StopWindow is set, null otherwise
+		private RabbitsGrassSteadyState steadyState;
+		private String stopReason;
+		private boolean metricsEnabled = false;
+		private int metricsPort = 0;
+
+		//Live metrics, when Metrics or MetricsPort is set, null otherwise
+		private RabbitsGrassMetrics metrics;
+
+		//Measures the scheduled actions when ProfileInterval is set, null otherwise
+		private RabbitsGrassProfiler profiler;
+		//Actions of a tick, in the order they run, built by buildSchedule
+		private List<BasicAction> tickActions;
+		private int logLevel = RabbitsGrassLog.INFO;
+		//Logger of this model, with its own level and sampling
+		private final RabbitsGrassLog log = new RabbitsGrassLog();
+		//Sprites of this model, with its own energy tiers
+		private RabbitsGrassSprites sprites;
+		private int logSampleTicks = 1;
+		private int logSampleRabbits = 1;
+		private String recordFile = "";
+		private RabbitsGrassRecorder recorder;
+		private String checkpointFile = "";
+		private int checkpointInterval = 0;
+		private String restoreFile = "";
+
+		//Snapshots are written by a background thread, one at a time
+		private ExecutorService checkpointWriter;
+		private Future<?> pendingCheckpoint;
+		private long lastCheckpointTick = -1;
+
+		//Number of rabbit steps since the model was built
+		private long tick;
+
+		//Births and deaths of the last rabbit step
+		private int lastBirths;
+		private int lastDeaths;
+
+		private ArrayList<RabbitsGrassSimulationAgent> agentList;
 		private RabbitsGrassSimulationSpace rgSpace;
+		private RabbitsGrassPopulation population;
+		private int IDNumber;
 
 		private OpenSequenceGraph amountOfGrassInSpace;
 		private OpenSequenceGraph amountOfRabbitsInSpace;
 		private OpenSequenceGraph populationEvolution;
 
+		//Replace the three graphs above when PlotPoints is set, null otherwise
+		private RabbitsGrassPlot[] boundedPlots;
+		private int plotPoints = 0;
+
 	/**
 	 * Implements DataSource and Sequence classes for total number of grass
 	 */
@@ -87,6 +155,9 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 
 		private DisplaySurface displaySurf;
 
+		//Draws displaySurf in its own thread when RenderFPS is set, null when the display is updated every step
+		private RabbitsGrassRenderer renderer;
+
 	/**
 	 * Main function
 	 * @param args
@@ -111,9 +182,21 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 	public void begin() {
 			buildModel();
 			buildSchedule();
+			if (headless) {
+				return;
+			}
 			buildDisplay();
 
 			displaySurf.display();
+			if (renderer != null) {
+				renderer.start(tick);
+			}
+			if (boundedPlots != null) {
+				for (RabbitsGrassPlot plot : boundedPlots) {
+					plot.display();
+				}
+				return;
+			}
 			amountOfGrassInSpace.display();
 			amountOfRabbitsInSpace.display();
 			populationEvolution.display();
@@ -124,64 +207,112 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 	 * Initializes the model with rabbits and grass according to the initial parameters
 	 */
 	public void buildModel(){
-			System.out.println("Running BuildModel");
-			rgSpace = new RabbitsGrassSimulationSpace(gridSize);
-			rgSpace.spreadGrass(numInitGrass);
-
-			for(int i = 0; i < numInitRabbits; i++){
-				addNewAgent();
+			log.info("Running BuildModel");
+			RabbitsGrassCheckpoint snapshot = null;
+			if (restoreFile.length() > 0) {
+				try {
+					snapshot = RabbitsGrassCheckpoint.read(restoreFile);
+					applyParameters(snapshot);
+				} catch (IOException e) {
+					log.error("Cannot restore " + restoreFile + ": " + e.getMessage());
+				}
+			}
+			//The Seed parameter is left as is, so that a Seed of 0 picks a new seed for every run
+			runSeed = seed != 0 ? seed : System.nanoTime();
+			log.info("Seed " + runSeed);
+			sprites = new RabbitsGrassSprites(4, birthThreshold);
+			profiler = profileInterval > 0 ? new RabbitsGrassProfiler(profileInterval, log) : null;
+			if (sparseWorld && compactPopulation) {
+				log.error("The sparse world stores agent Objects, CompactPopulation is ignored");
+				compactPopulation = false;
+			}
+			if (synchronousStep && !compactPopulation) {
+				log.error("The synchronous step needs CompactPopulation, rabbits are stepped one by one");
+			}
+			rgSpace = new RabbitsGrassSimulationSpace(gridSize, new SplittableRandom(runSeed), sparseWorld);
+			rgSpace.setGrowthMode(grassGrowthMode);
+			rgSpace.setForagingRadius(foragingRadius);
+			stopReason = null;
+			if (metricsEnabled || metricsPort > 0) {
+				startMetrics();
+			}
+			steadyState = stopWindow > 0 ? new RabbitsGrassSteadyState(new rabbitsInSpace(), new grassInSpace(),
+					rgSpace.getSizeX() * rgSpace.getSizeY(), stopWindow, stopTolerance) : null;
+			if (recordFile.length() > 0) {
+				try {
+					//A restored run continues the history recorded before the snapshot instead of truncating it
+					recorder = snapshot != null ? new RabbitsGrassRecorder(recordFile, snapshot.getTick())
+							: new RabbitsGrassRecorder(recordFile);
+				} catch (IOException e) {
+					log.error("Cannot record to " + recordFile + ": " + e.getMessage());
+				}
 			}
 
-			for(int i = 0; i < agentList.size(); i++){
-				RabbitsGrassSimulationAgent cda = (RabbitsGrassSimulationAgent) agentList.get(i);
-				cda.report();
+			if (snapshot != null) {
+				restore(snapshot);
+				log.info("Restored tick " + tick + " from " + restoreFile);
+			} else if (compactPopulation) {
+				rgSpace.spreadGrass(numInitGrass);
+				population = new RabbitsGrassPopulation(rgSpace, numInitRabbits);
+				for(int i = 0; i < numInitRabbits; i++){
+					population.add(numInitEnergy);
+				}
+				population.report(tick, log);
+			} else {
+				rgSpace.spreadGrass(numInitGrass);
+				for(int i = 0; i < numInitRabbits; i++){
+					addNewAgent();
+				}
+
+				for(int i = 0; i < agentList.size(); i++){
+					RabbitsGrassSimulationAgent cda = agentList.get(i);
+					cda.report(tick, log);
+				}
 			}
 		}
 
 	/**
-	 * Creates a rabbit and adds it to the space and to the agentList
+	 * Creates a rabbit and adds it to the space and to the agentList, if there is room left
 	 */
 	private void addNewAgent(){
-			RabbitsGrassSimulationAgent a = new RabbitsGrassSimulationAgent(numInitEnergy);
-			agentList.add(a);
-			rgSpace.addAgent(a);
+			IDNumber++;
+			RabbitsGrassSimulationAgent a = new RabbitsGrassSimulationAgent(numInitEnergy, IDNumber);
+			a.setSprites(sprites);
+			if (rgSpace.addAgent(a)) {
+				agentList.add(a);
+			}
 		}
 
 	/**
 	 * Creates the simulation events
+	 * The actions of a tick are built once, in order, in tickActions: the schedule runs them as a single
+	 * action, and the batch runner runs them through runTick, so both run the same actions in the same order
 	 */
 		public void buildSchedule(){
-			System.out.println("Running BuildSchedule");
+			log.info("Running BuildSchedule");
+			tickActions = new ArrayList<BasicAction>();
+
 			class RabbitsGrassStep extends BasicAction {
 				public void execute() {
 
-					SimUtilities.shuffle(agentList);
-					boolean reproduction = false;
-					for(int i =0; i < agentList.size(); i++){
-						RabbitsGrassSimulationAgent cda = (RabbitsGrassSimulationAgent) agentList.get(i);
-						reproduction = cda.step(energyPerGrass, lossReproduction, birthThreshold);
-						if (reproduction) {
+					stepRabbits();
 
-							addNewAgent();
-						}
-						cda.report();
+					if (renderer != null) {
+						renderer.publish(tick);
+					} else if (!headless) {
+						displaySurf.updateDisplay();
 					}
-
-					int deadAgents = reapDeadAgents();
-
-
-					displaySurf.updateDisplay();
 				}
 			}
-			schedule.scheduleActionBeginning(0, new RabbitsGrassStep());
+			tickActions.add(profiled("RabbitsGrassStep", new RabbitsGrassStep()));
 
 			class GrowGrass extends BasicAction {
 				@Override
 				public void execute() {
-					rgSpace.spreadGrass(grassGrowthRate);
+					growGrass();
 				}
 			}
-			schedule.scheduleActionAtInterval(1, new GrowGrass());
+			tickActions.add(profiled("GrowGrass", new GrowGrass()));
 
 			class RabbitsGrassCountLiving extends BasicAction {
 				public void execute(){
@@ -189,21 +320,94 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 				}
 			}
 
-			schedule.scheduleActionAtInterval(1, new RabbitsGrassCountLiving());
+			tickActions.add(profiled("RabbitsGrassCountLiving", new RabbitsGrassCountLiving()));
+
+			class RabbitsGrassRecord extends BasicAction {
+				public void execute(){
+					recordTick();
+				}
+			}
+			tickActions.add(profiled("RabbitsGrassRecord", new RabbitsGrassRecord()));
+
+			if (steadyState != null) {
+				class RabbitsGrassStopCheck extends BasicAction {
+					public void execute(){
+						checkStop();
+					}
+				}
+				tickActions.add(profiled("RabbitsGrassStopCheck", new RabbitsGrassStopCheck()));
+			}
+
+			if (metrics != null) {
+				class RabbitsGrassPublishMetrics extends BasicAction {
+					public void execute(){
+						publishMetrics();
+					}
+				}
+				tickActions.add(profiled("RabbitsGrassPublishMetrics", new RabbitsGrassPublishMetrics()));
+			}
+
+			if (profiler != null) {
+				class RabbitsGrassProfileReport extends BasicAction {
+					public void execute(){
+						profiler.endTick(tick);
+					}
+				}
+				tickActions.add(new RabbitsGrassProfileReport());
+			}
+
+			class RabbitsGrassTick extends BasicAction {
+				public void execute(){
+					runTick();
+				}
+			}
+			schedule.scheduleActionBeginning(0, new RabbitsGrassTick());
+
+			class RabbitsGrassFinish extends BasicAction {
+				public void execute(){
+					finish();
+				}
+			}
+			schedule.scheduleActionAtEnd(new RabbitsGrassFinish());
+
+			if (headless) {
+				return;
+			}
+
+			if (plotPoints > 0) {
+				class RabbitsGrassSamplePlots extends BasicAction {
+					public void execute(){
+						for (RabbitsGrassPlot plot : boundedPlots) {
+							plot.step(tick);
+						}
+					}
+				}
+				schedule.scheduleActionAtInterval(1, profiled("RabbitsGrassSamplePlots", new RabbitsGrassSamplePlots()));
+
+				class RabbitsGrassUpdatePlots extends BasicAction {
+					public void execute(){
+						for (RabbitsGrassPlot plot : boundedPlots) {
+							plot.update();
+						}
+					}
+				}
+				schedule.scheduleActionAtInterval(10, profiled("RabbitsGrassUpdatePlots", new RabbitsGrassUpdatePlots()));
+				return;
+			}
 
 			class RabbitsGrassUpdateGrassInSpace extends BasicAction {
 				public void execute(){
 					amountOfGrassInSpace.step();
 				}
 			}
-			schedule.scheduleActionAtInterval(10, new RabbitsGrassUpdateGrassInSpace());
+			schedule.scheduleActionAtInterval(10, profiled("RabbitsGrassUpdateGrassInSpace", new RabbitsGrassUpdateGrassInSpace()));
 
 			class RabbitsGrassUpdateRabbitsInSpace extends BasicAction {
 				public void execute(){
 					amountOfRabbitsInSpace.step();
 				}
 			}
-			schedule.scheduleActionAtInterval(10, new RabbitsGrassUpdateRabbitsInSpace());
+			schedule.scheduleActionAtInterval(10, profiled("RabbitsGrassUpdateRabbitsInSpace", new RabbitsGrassUpdateRabbitsInSpace()));
 
 			class PopulationEvolutionUpdate extends BasicAction {
 				@Override
@@ -212,16 +416,352 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 				}
 			}
 
-			schedule.scheduleActionAtInterval(10, new PopulationEvolutionUpdate());
+			schedule.scheduleActionAtInterval(10, profiled("PopulationEvolutionUpdate", new PopulationEvolutionUpdate()));
+
+		}
+
+	/**
+	 * Performs a simulation step for every rabbit, adds the newborns and removes the dead rabbits
+	 */
+	public void stepRabbits(){
+		if (checkpointInterval > 0 && checkpointFile.length() > 0 && tick > 0 && tick % checkpointInterval == 0 && tick != lastCheckpointTick) {
+			saveCheckpoint();
+		}
+		tick++;
+		int births = 0;
+		if (population != null) {
+			if (synchronousStep) {
+				births = population.stepSynchronous(energyPerGrass, lossReproduction, birthThreshold, numInitEnergy);
+			} else if (stepTiles > 1) {
+				births = population.stepTiled(stepTiles, energyPerGrass, lossReproduction, birthThreshold, numInitEnergy);
+			} else {
+				births = population.step(energyPerGrass, lossReproduction, birthThreshold, numInitEnergy);
+			}
+			population.report(tick, log);
+		} else {
+			shuffle(agentList, rgSpace.getRandom());
+			boolean reproduction = false;
+			for(int i =0; i < agentList.size(); i++){
+				RabbitsGrassSimulationAgent cda = agentList.get(i);
+				reproduction = cda.step(energyPerGrass, lossReproduction, birthThreshold);
+				if (reproduction) {
+					births++;
+					addNewAgent();
+				}
+				cda.report(tick, log);
+			}
+		}
+		lastBirths = births;
+		lastDeaths = reapDeadAgents();
+	}
+
+	/**
+	 * Shuffles a list with the random generator of the model, so that runs with the same seed are identical
+	 * @param list, the list to shuffle
+	 * @param random, the random generator
+	 */
+	private static <T> void shuffle(List<T> list, SplittableRandom random){
+		for(int i = list.size() - 1; i > 0; i--){
+			int j = random.nextInt(i + 1);
+			list.set(j, list.set(i, list.get(j)));
+		}
+	}
+
+	/**
+	 * Grows the grass of one simulation step
+	 */
+	public void growGrass(){
+		rgSpace.spreadGrass(grassGrowthRate);
+	}
 
+	/**
+	 * Runs the actions of one tick, in the order they were built by buildSchedule
+	 * Called by the schedule, and by the batch runner, which has no Repast controller
+	 */
+	public void runTick(){
+		for (BasicAction action : tickActions) {
+			action.execute();
 		}
+	}
+
+	/**
+	 * Creates the live metrics, registers their MBean and serves them over HTTP if MetricsPort is set
+	 * The run goes on without them if they cannot be started
+	 */
+	private void startMetrics(){
+		metrics = new RabbitsGrassMetrics(log);
+		try {
+			metrics.register();
+		} catch (JMException e) {
+			log.error("Cannot register the metrics MBean: " + e.getMessage());
+		}
+		if (metricsPort > 0) {
+			try {
+				metrics.serve(metricsPort);
+				log.info("Serving metrics at http://127.0.0.1:" + metrics.getAddress().getPort() + "/metrics");
+			} catch (IOException e) {
+				log.error("Cannot serve metrics on port " + metricsPort + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Publishes the values of the current tick to the live metrics, if they are enabled
+	 */
+	public void publishMetrics(){
+		if (metrics != null) {
+			metrics.publish(tick, rgSpace.getTotalRabbits(), rgSpace.getTotalGrass(), lastBirths, lastDeaths);
+		}
+	}
+
+	/**
+	 * Checks whether the run can stop early, when StopWindow is set, and stops the schedule if so
+	 * Headless runs have no schedule: the batch runner checks getStopReason after every tick
+	 */
+	public void checkStop(){
+		if (steadyState == null || stopReason != null) {
+			return;
+		}
+		if (steadyState.check(tick)) {
+			stopReason = steadyState.getReason();
+			log.info("Stopping early: " + stopReason);
+			if (!headless) {
+				stop();
+			}
+		}
+	}
+
+	/**
+	 * Getter for the reason the run stopped early
+	 * @return stopReason, null if the run has not stopped early
+	 */
+	public String getStopReason() {
+		return stopReason;
+	}
+
+	/**
+	 * Getter for the kind of early stop
+	 * @return RabbitsGrassSteadyState.RUNNING, EXTINCTION, SATURATION or STEADY_STATE
+	 */
+	public int getStopState() {
+		return steadyState == null ? RabbitsGrassSteadyState.RUNNING : steadyState.getState();
+	}
+
+	/**
+	 * Wraps a scheduled action so that the profiler measures it, if profiling is enabled
+	 * @param name, the name of the action in the profile
+	 * @param action, the action
+	 * @return the action to schedule
+	 */
+	private BasicAction profiled(String name, BasicAction action){
+		if (profiler == null) {
+			return action;
+		}
+		return profiler.wrap(name, action);
+	}
+
+	/**
+	 * Appends the population of the current tick to the record file, if one is set
+	 */
+	public void recordTick(){
+		if (recorder == null) {
+			return;
+		}
+		try {
+			recorder.append(tick, rgSpace.getTotalRabbits(), rgSpace.getTotalGrass(), lastBirths, lastDeaths);
+		} catch (IOException e) {
+			log.error("Recording stopped: " + e.getMessage());
+			finish();
+		}
+	}
+
+	/**
+	 * Captures a snapshot of the whole model
+	 * The random generator is reseeded with a seed drawn from it, which the snapshot stores, so that
+	 * this run and a run restored from the snapshot draw the same numbers from now on
+	 * @return the snapshot
+	 */
+	public RabbitsGrassCheckpoint checkpoint(){
+		RabbitsGrassCheckpoint c = new RabbitsGrassCheckpoint();
+		c.gridSize = gridSize;
+		c.numInitRabbits = numInitRabbits;
+		c.numInitGrass = numInitGrass;
+		c.grassGrowthRate = grassGrowthRate;
+		c.birthThreshold = birthThreshold;
+		c.numInitEnergy = numInitEnergy;
+		c.energyPerGrass = energyPerGrass;
+		c.lossReproduction = lossReproduction;
+		c.compactPopulation = compactPopulation;
+		c.seed = runSeed;
+		c.stepTiles = stepTiles;
+		c.grassGrowthMode = grassGrowthMode;
+		c.foragingRadius = foragingRadius;
+		c.synchronousStep = synchronousStep;
+		c.sparseWorld = sparseWorld;
+		c.tick = tick;
+		c.randomSeed = rgSpace.getRandom().nextLong();
+		rgSpace.setRandom(new SplittableRandom(c.randomSeed));
+		if (sparseWorld) {
+			c.allocateChunks(rgSpace.getGrassChunkCount());
+			rgSpace.copyGrassChunks(c.chunkXs, c.chunkYs, c.chunkGrass);
+		} else {
+			c.grass = rgSpace.copyGrass();
+		}
+		if (population != null) {
+			c.IDNumber = population.getLastIDNumber();
+			c.allocateRabbits(population.size());
+			for(int i = 0; i < c.rabbits; i++){
+				int slot = population.getSlot(i);
+				c.ids[i] = population.getIDNumber(slot);
+				c.xs[i] = population.getX(slot);
+				c.ys[i] = population.getY(slot);
+				c.energies[i] = population.getEnergy(slot);
+			}
+		} else {
+			c.IDNumber = IDNumber;
+			c.allocateRabbits(agentList.size());
+			for(int i = 0; i < c.rabbits; i++){
+				RabbitsGrassSimulationAgent cda = agentList.get(i);
+				c.ids[i] = cda.getIDNumber();
+				c.xs[i] = cda.getX();
+				c.ys[i] = cda.getY();
+				c.energies[i] = cda.getEnergy();
+			}
+		}
+		lastCheckpointTick = tick;
+		return c;
+	}
+
+	/**
+	 * Captures a snapshot and writes it to the checkpoint file in the background
+	 * Waits for the previous snapshot to be written first, so that snapshots are never skipped
+	 */
+	private void saveCheckpoint(){
+		waitForCheckpoint();
+		final RabbitsGrassCheckpoint c = checkpoint();
+		if (checkpointWriter == null) {
+			checkpointWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "RabbitsGrassCheckpoint writer");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		pendingCheckpoint = checkpointWriter.submit(new Runnable() {
+			public void run() {
+				try {
+					c.write(checkpointFile);
+					log.info("Checkpoint of tick " + c.getTick() + " written to " + checkpointFile);
+				} catch (IOException e) {
+					log.error("Cannot write checkpoint " + checkpointFile + ": " + e.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Waits until the snapshot being written, if any, is on disk
+	 */
+	private void waitForCheckpoint(){
+		if (pendingCheckpoint == null) {
+			return;
+		}
+		try {
+			pendingCheckpoint.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			log.error("Checkpoint failed: " + e.getCause());
+		}
+		pendingCheckpoint = null;
+	}
+
+	/**
+	 * Sets the parameters of the model to the ones of a snapshot
+	 * @param c, the snapshot
+	 */
+	private void applyParameters(RabbitsGrassCheckpoint c){
+		gridSize = c.gridSize;
+		numInitRabbits = c.numInitRabbits;
+		numInitGrass = c.numInitGrass;
+		grassGrowthRate = c.grassGrowthRate;
+		birthThreshold = c.birthThreshold;
+		numInitEnergy = c.numInitEnergy;
+		energyPerGrass = c.energyPerGrass;
+		lossReproduction = c.lossReproduction;
+		compactPopulation = c.compactPopulation;
+		seed = c.seed;
+		stepTiles = c.stepTiles;
+		grassGrowthMode = c.grassGrowthMode;
+		foragingRadius = c.foragingRadius;
+		synchronousStep = c.synchronousStep;
+		sparseWorld = c.sparseWorld;
+	}
+
+	/**
+	 * Puts the grass, the rabbits, the tick and the random generator of a snapshot in the new space
+	 * @param c, the snapshot
+	 */
+	private void restore(RabbitsGrassCheckpoint c){
+		tick = c.tick;
+		lastCheckpointTick = c.tick;
+		rgSpace.setRandom(new SplittableRandom(c.randomSeed));
+		if (sparseWorld) {
+			rgSpace.restoreGrassChunks(c.chunkXs, c.chunkYs, c.chunkGrass);
+		} else {
+			rgSpace.restoreGrass(c.grass);
+		}
+		if (compactPopulation) {
+			population = new RabbitsGrassPopulation(rgSpace, c.rabbits);
+			for(int i = 0; i < c.rabbits; i++){
+				population.restore(c.ids[i], c.xs[i], c.ys[i], c.energies[i]);
+			}
+			population.setLastIDNumber(c.IDNumber);
+		} else {
+			for(int i = 0; i < c.rabbits; i++){
+				RabbitsGrassSimulationAgent a = new RabbitsGrassSimulationAgent(c.energies[i], c.ids[i]);
+				a.setSprites(sprites);
+				agentList.add(a);
+				rgSpace.addAgentAt(a, c.xs[i], c.ys[i]);
+			}
+			IDNumber = c.IDNumber;
+		}
+	}
+
+	/**
+	 * Releases the resources of the run, called when the simulation ends
+	 */
+	public void finish(){
+		if (metrics != null) {
+			metrics.close();
+			metrics = null;
+		}
+		if (profiler != null) {
+			profiler.summary();
+			profiler = null;
+		}
+		if (renderer != null) {
+			renderer.stop();
+			renderer = null;
+		}
+		waitForCheckpoint();
+		if (recorder != null) {
+			try {
+				recorder.close();
+			} catch (IOException e) {
+				log.error("Cannot close " + recordFile + ": " + e.getMessage());
+			}
+			recorder = null;
+		}
+	}
 
 	/**
 	 * Creates a display for the rabbits, grass and plots
 	 */
 
 	public void buildDisplay(){
-			System.out.println("Running BuildDisplay");
+			log.info("Running BuildDisplay");
 			ColorMap map = new ColorMap();
 
 			for(int i = 1; i<16; i++){
@@ -229,14 +769,68 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 			}
 			map.mapColor(0, new Color(150,75,0));
 
-			Value2DDisplay displayGrass = new Value2DDisplay(rgSpace.getCurrentGrassSpace(), map);
-
-			Object2DDisplay displayAgents = new Object2DDisplay(rgSpace.getCurrentAgentSpace());
-			displayAgents.setObjectList(agentList);
+			if (renderFPS > 0) {
+				//The displays read the frames of the renderer instead of the live space
+				renderer = new RabbitsGrassRenderer(rgSpace, displaySurf, renderFPS, log);
+				Value2DDisplay displayGrass = new Value2DDisplay(new RabbitsGrassFrameDisplay(renderer, RabbitsGrassFrameDisplay.GRASS, sprites), map);
+				RabbitsGrassFrameDisplay rabbitsFrame = new RabbitsGrassFrameDisplay(renderer, RabbitsGrassFrameDisplay.RABBITS, sprites);
+				Object2DDisplay displayAgents = new Object2DDisplay(rabbitsFrame);
+				displayAgents.setObjectList(rabbitsFrame.getObjectList());
+				displaySurf.addDisplayableProbeable(displayGrass, "Grass");
+				displaySurf.addDisplayableProbeable(displayAgents, "Agents");
+			} else if (rgSpace.isSparse()) {
+				//Views of the chunked world, only created here, when it is drawn; both draw the allocated chunks only
+				RabbitsGrassChunkedDisplay grassGrid = new RabbitsGrassChunkedDisplay(rgSpace.getWorld(), RabbitsGrassChunkedDisplay.GRASS);
+				Object2DDisplay displayGrass = new Object2DDisplay(grassGrid);
+				displayGrass.setObjectList(grassGrid.getObjectList());
+				Object2DDisplay displayAgents = new Object2DDisplay(new RabbitsGrassChunkedDisplay(rgSpace.getWorld(), RabbitsGrassChunkedDisplay.RABBITS));
+				displayAgents.setObjectList(agentList);
+				displaySurf.addDisplayableProbeable(displayGrass, "Grass");
+				displaySurf.addDisplayableProbeable(displayAgents, "Agents");
+			} else {
+				//The grass field and the population have no grid of Objects, their views are only created here
+				Value2DDisplay displayGrass = new Value2DDisplay(new RabbitsGrassFieldDisplay(rgSpace), map);
+				Object2DDisplay displayAgents;
+				if (population != null) {
+					RabbitsGrassPopulationDisplay populationGrid = population.getDisplayGrid(sprites);
+					displayAgents = new Object2DDisplay(populationGrid);
+					displayAgents.setObjectList(populationGrid.getObjectList());
+				} else {
+					displayAgents = new Object2DDisplay(rgSpace.getCurrentAgentSpace());
+					displayAgents.setObjectList(agentList);
+				}
+				displaySurf.addDisplayableProbeable(displayGrass, "Grass");
+				displaySurf.addDisplayableProbeable(displayAgents, "Agents");
+			}
 
-			displaySurf.addDisplayableProbeable(displayGrass, "Grass");
-			displaySurf.addDisplayableProbeable(displayAgents, "Agents");
+			//Either the bounded plots or the graphs are created, and only the ones created are registered
+			if (plotPoints > 0) {
+				RabbitsGrassPlot grassPlot = new RabbitsGrassPlot("Amount Of Grass In Space", this, plotPoints);
+				RabbitsGrassPlot rabbitsPlot = new RabbitsGrassPlot("Amount Of Rabbits In Space", this, plotPoints);
+				RabbitsGrassPlot evolutionPlot = new RabbitsGrassPlot("Population Evolution", this, plotPoints);
+				grassPlot.setAxisTitles("Time", "Number of grass units");
+				rabbitsPlot.setAxisTitles("Time", "Number of rabbits");
+				evolutionPlot.setAxisTitles("Time", "Population evolution");
+				grassPlot.addSequence("Grass In Space", new grassInSpace());
+				rabbitsPlot.addSequence("Rabbits In Space", new rabbitsInSpace());
+				evolutionPlot.addSequence("Grass in Space", new grassInSpace());
+				evolutionPlot.addSequence("Rabbits in Space", new rabbitsInSpace());
+				boundedPlots = new RabbitsGrassPlot[] { grassPlot, rabbitsPlot, evolutionPlot };
+				for (RabbitsGrassPlot plot : boundedPlots) {
+					this.registerMediaProducer("Plot", plot.getPlot());
+				}
+				return;
+			}
 
+			amountOfGrassInSpace = new OpenSequenceGraph("Amount Of Grass In Space",this);
+			amountOfRabbitsInSpace = new OpenSequenceGraph("Amount Of Rabbits In Space",this);
+			populationEvolution = new OpenSequenceGraph("Population Evolution", this);
+			amountOfGrassInSpace.setAxisTitles("Time", "Number of grass units");
+			amountOfRabbitsInSpace.setAxisTitles("Time", "Number of rabbits");
+			populationEvolution.setAxisTitles("Time", "Population evolution");
+			this.registerMediaProducer("Plot", amountOfGrassInSpace);
+			this.registerMediaProducer("Plot", amountOfRabbitsInSpace);
+			this.registerMediaProducer("Plot", populationEvolution);
 			amountOfGrassInSpace.addSequence("Grass In Space", new grassInSpace());
 			amountOfRabbitsInSpace.addSequence("Grass In Space", new rabbitsInSpace());
 			populationEvolution.addSequence("Grass in Space", new grassInSpace());
@@ -252,7 +846,8 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 	public String[] getInitParam() {
 			// Parameters to be set by users via the Repast UI slider bar
 			// Do "not" modify the parameters names provided in the skeleton code, you can add more if you want 
-			String[] params = { "GridSize", "NumInitRabbits", "NumInitGrass", "GrassGrowthRate", "BirthThreshold", "NumInitEnergy","EnergyPerGrass","LossReproduction"};
+			String[] params = { "GridSize", "NumInitRabbits", "NumInitGrass", "GrassGrowthRate", "BirthThreshold", "NumInitEnergy","EnergyPerGrass","LossReproduction", "Debug", "CompactPopulation", "Seed", "StepTiles", "SynchronousStep", "GrassGrowthMode", "ForagingRadius", "RenderFPS", "SparseWorld", "ProfileInterval", "StopWindow", "StopTolerance", "PlotPoints", "Metrics", "MetricsPort", "LogLevel", "LogSampleTicks", "LogSampleRabbits", "RecordFile",
+					"CheckpointFile", "CheckpointInterval", "RestoreFile"};
 			return params;
 		}
 
@@ -265,36 +860,43 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 		}
 
 	/**
-	 * Collects dead rabbits, removes them form the space and from the agentList
+	 * Collects dead rabbits, removes them form the space and from the agentList (or the population)
+	 * The agentList is compacted in a single pass: living rabbits are moved down over the dead ones,
+	 * keeping their order, and the tail is cut once
 	 * @return the total number of dead agents
 	 */
 
 	private int reapDeadAgents(){
-		int count = 0;
-		for(int i = (agentList.size() - 1); i >= 0 ; i--){
-			RabbitsGrassSimulationAgent cda = (RabbitsGrassSimulationAgent) agentList.get(i);
+		if (population != null) {
+			return population.reapDead();
+		}
+		int size = agentList.size();
+		int kept = 0;
+		for(int i = 0; i < size; i++){
+			RabbitsGrassSimulationAgent cda = agentList.get(i);
 			if(cda.getEnergy() < 1){
 				rgSpace.removeAgentAt(cda.getX(), cda.getY());
-
-				agentList.remove(i);
-				count++;
+			} else {
+				if (kept != i) {
+					agentList.set(kept, cda);
+				}
+				kept++;
 			}
 		}
-		return count;
+		agentList.subList(kept, size).clear();
+		return size - kept;
 	}
 
 	/**
-	 * Counts the living agents
+	 * Counts the living agents, and cross-checks the space totals in debug mode
 	 * @return the total number of living agents
 	 */
-	private int countLivingAgents(){
-		int livingAgents = 0;
-		for(int i = 0; i < agentList.size(); i++){
-			RabbitsGrassSimulationAgent cda = (RabbitsGrassSimulationAgent) agentList.get(i);
-			if(cda.getEnergy() > 0) livingAgents++;
+	public int countLivingAgents(){
+		if (debug) {
+			rgSpace.verifyTotals();
 		}
-
-		return livingAgents;
+		// Dead rabbits are reaped in the step that kills them, so every rabbit in the space is alive
+		return rgSpace.getTotalRabbits();
 	}
 
 	/**
@@ -329,7 +931,7 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 		if (birthThreshold > numInitEnergy)
 			this.birthThreshold = birthThreshold;
 		else
-			System.out.println("Birth threshold set is not succesfull. Should be higher than initial energy.");
+			log.error("Birth threshold set is not succesfull. Should be higher than initial energy.");
 	}
 
 	/**
@@ -412,6 +1014,440 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 		this.lossReproduction = lossReproduction;
 	}
 
+	/**
+	 * Getter for the debug mode, which cross-checks the space totals every tick
+	 * @return debug
+	 */
+	public boolean getDebug() {
+		return debug;
+	}
+
+	/**
+	 * Setter for the debug mode
+	 * @param debug, true to cross-check the space totals every tick
+	 */
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+	/**
+	 * Getter for the population mode
+	 * @return true if the rabbits are stored in a RabbitsGrassPopulation instead of agent Objects
+	 */
+	public boolean getCompactPopulation() {
+		return compactPopulation;
+	}
+
+	/**
+	 * Setter for the population mode, taken into account when the model is built
+	 * @param compactPopulation, true to store the rabbits in parallel primitive arrays
+	 */
+	public void setCompactPopulation(boolean compactPopulation) {
+		this.compactPopulation = compactPopulation;
+	}
+
+	/**
+	 * Getter for the seed of the random generator
+	 * @return seed, 0 if a seed is chosen when the model is built
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Getter for the seed of the current run
+	 * @return runSeed, the Seed parameter, or the seed chosen when the model was built if it is 0
+	 */
+	public long getRunSeed() {
+		return runSeed;
+	}
+
+	/**
+	 * Setter for the seed of the random generator, runs with the same seed and parameters are identical
+	 * @param seed, the new seed, 0 to choose one when the model is built
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Getter for the number of tiles per side of the parallel step
+	 * @return stepTiles
+	 */
+	public int getStepTiles() {
+		return stepTiles;
+	}
+
+	/**
+	 * Setter for the number of tiles per side of the parallel step, can be changed while running
+	 * With a compact population and more than 1 tile per side, the tiles are stepped concurrently
+	 * @param stepTiles, the new number of tiles per side, 1 for the serial step
+	 */
+	public void setStepTiles(int stepTiles) {
+		this.stepTiles = stepTiles;
+	}
+
+	/**
+	 * Getter for the synchronous step mode
+	 * @return synchronousStep
+	 */
+	public boolean getSynchronousStep() {
+		return synchronousStep;
+	}
+
+	/**
+	 * Setter for the synchronous step mode, can be changed while running
+	 * With a compact population, every rabbit then sees the population as it was at the start of the step,
+	 * and the rabbits are stepped in parallel. StepTiles is ignored
+	 * @param synchronousStep, true for the synchronous step, false for the sequential one
+	 */
+	public void setSynchronousStep(boolean synchronousStep) {
+		this.synchronousStep = synchronousStep;
+	}
+
+	/**
+	 * Getter for the window of the early stop detection
+	 * @return stopWindow, 0 if runs always go to their last tick
+	 */
+	public int getStopWindow() {
+		return stopWindow;
+	}
+
+	/**
+	 * Setter for the window of the early stop detection, taken into account when the model is built
+	 * Above 0, the run stops when the rabbits are extinct, when they fill the space for this many ticks,
+	 * or when the rabbits and grass are steady over this many ticks
+	 * @param stopWindow, the number of ticks of the window, 0 to never stop early
+	 */
+	public void setStopWindow(int stopWindow) {
+		this.stopWindow = stopWindow;
+	}
+
+	/**
+	 * Getter for the tolerance of the early stop detection
+	 * @return stopTolerance
+	 */
+	public double getStopTolerance() {
+		return stopTolerance;
+	}
+
+	/**
+	 * Setter for the tolerance of the early stop detection, taken into account when the model is built
+	 * @param stopTolerance, the relative tolerance on the mean and deviation of the series, e.g. 0.05
+	 */
+	public void setStopTolerance(double stopTolerance) {
+		this.stopTolerance = stopTolerance;
+	}
+
+	/**
+	 * Getter for the number of points per plotted sequence
+	 * @return plotPoints, 0 if every point is plotted
+	 */
+	public int getPlotPoints() {
+		return plotPoints;
+	}
+
+	/**
+	 * Setter for the number of points per plotted sequence, taken into account when the display is built
+	 * Above 0, the plots sample every tick and keep at most this many points per sequence (RabbitsGrassPlot),
+	 * so that long runs plot in constant time and memory
+	 * @param plotPoints, the number of points, 0 to keep every point
+	 */
+	public void setPlotPoints(int plotPoints) {
+		this.plotPoints = plotPoints;
+	}
+
+	/**
+	 * Getter for the live metrics switch
+	 * @return true if the metrics MBean is registered
+	 */
+	public boolean getMetrics() {
+		return metricsEnabled;
+	}
+
+	/**
+	 * Setter for the live metrics switch, taken into account when the model is built
+	 * The metrics are registered as the MBean RabbitsGrass:type=Metrics,id=<n>
+	 * @param metricsEnabled, true to publish the metrics of every tick
+	 */
+	public void setMetrics(boolean metricsEnabled) {
+		this.metricsEnabled = metricsEnabled;
+	}
+
+	/**
+	 * Getter for the port of the metrics endpoint
+	 * @return metricsPort, 0 if the metrics are not served over HTTP
+	 */
+	public int getMetricsPort() {
+		return metricsPort;
+	}
+
+	/**
+	 * Setter for the port of the metrics endpoint, taken into account when the model is built
+	 * Above 0, the metrics are also served in the Prometheus text format at http://127.0.0.1:<port>/metrics
+	 * @param metricsPort, the port, 0 for no HTTP endpoint
+	 */
+	public void setMetricsPort(int metricsPort) {
+		this.metricsPort = metricsPort;
+	}
+
+	/**
+	 * Getter for the grass growth kernel
+	 * @return grassGrowthMode, 0 (scatter), 1 (multinomial) or 2 (Poisson)
+	 */
+	public int getGrassGrowthMode() {
+		return grassGrowthMode;
+	}
+
+	/**
+	 * Setter for the grass growth kernel, can be changed while running
+	 * Scatter and multinomial spread exactly GrassGrowthRate grass per step, Poisson spreads it on average
+	 * @param grassGrowthMode, the new kernel, 0 (scatter), 1 (multinomial) or 2 (Poisson)
+	 */
+	public void setGrassGrowthMode(int grassGrowthMode) {
+		this.grassGrowthMode = grassGrowthMode;
+		if (rgSpace != null) {
+			rgSpace.setGrowthMode(grassGrowthMode);
+		}
+	}
+
+	/**
+	 * Getter for the foraging radius
+	 * @return foragingRadius, 0 if rabbits move at random
+	 */
+	public int getForagingRadius() {
+		return foragingRadius;
+	}
+
+	/**
+	 * Setter for the foraging radius, can be changed while running
+	 * Above 0, a rabbit moves towards the neighbour cell with the most grass in the square of this radius around it
+	 * @param foragingRadius, the new radius, 0 for rabbits moving at random
+	 */
+	public void setForagingRadius(int foragingRadius) {
+		this.foragingRadius = foragingRadius;
+		if (rgSpace != null) {
+			rgSpace.setForagingRadius(foragingRadius);
+		}
+	}
+
+	/**
+	 * Getter for the frame rate of the display
+	 * @return renderFPS, 0 if the display is updated synchronously at every step
+	 */
+	public int getRenderFPS() {
+		return renderFPS;
+	}
+
+	/**
+	 * Setter for the frame rate of the display, used when the display is built
+	 * Above 0, the display is drawn by a separate thread at that rate, and the steps in between are not drawn
+	 * @param renderFPS, the new frame rate, 0 to update the display synchronously at every step
+	 */
+	public void setRenderFPS(int renderFPS) {
+		this.renderFPS = renderFPS;
+	}
+
+	/**
+	 * Getter for the sparse world option
+	 * @return sparseWorld
+	 */
+	public boolean getSparseWorld() {
+		return sparseWorld;
+	}
+
+	/**
+	 * Setter for the sparse world option, used when the model is built
+	 * A sparse world only allocates the 64x64 chunks holding grass or rabbits, for huge, mostly empty grids
+	 * @param sparseWorld, true to store the space in chunks, false for dense arrays
+	 */
+	public void setSparseWorld(boolean sparseWorld) {
+		this.sparseWorld = sparseWorld;
+	}
+
+	/**
+	 * Getter for the profiling interval
+	 * @return profileInterval, 0 if the scheduled actions are not profiled
+	 */
+	public int getProfileInterval() {
+		return profileInterval;
+	}
+
+	/**
+	 * Setter for the profiling interval, used when the model is built
+	 * Above 0, every scheduled action is timed, a report is logged every profileInterval ticks and a summary
+	 * at the end of the run
+	 * @param profileInterval, the number of ticks between two reports, 0 to disable profiling
+	 */
+	public void setProfileInterval(int profileInterval) {
+		this.profileInterval = profileInterval;
+	}
+
+	/**
+	 * Getter for the log level
+	 * @return logLevel, 0 (off) to 3 (rabbit reports)
+	 */
+	public int getLogLevel() {
+		return logLevel;
+	}
+
+	/**
+	 * Setter for the log level, rabbits are reported at level 3 only
+	 * @param logLevel, the new log level, 0 (off) to 3 (rabbit reports)
+	 */
+	public void setLogLevel(int logLevel) {
+		this.logLevel = logLevel;
+		log.setLevel(logLevel);
+	}
+
+	/**
+	 * Getter for the tick sampling of the rabbit reports
+	 * @return logSampleTicks
+	 */
+	public int getLogSampleTicks() {
+		return logSampleTicks;
+	}
+
+	/**
+	 * Setter for the tick sampling of the rabbit reports
+	 * @param logSampleTicks, rabbits are reported every logSampleTicks ticks
+	 */
+	public void setLogSampleTicks(int logSampleTicks) {
+		this.logSampleTicks = logSampleTicks;
+		log.setSampling(logSampleTicks, logSampleRabbits);
+	}
+
+	/**
+	 * Getter for the rabbit sampling of the rabbit reports
+	 * @return logSampleRabbits
+	 */
+	public int getLogSampleRabbits() {
+		return logSampleRabbits;
+	}
+
+	/**
+	 * Setter for the rabbit sampling of the rabbit reports
+	 * @param logSampleRabbits, only the rabbits whose ID is a multiple of logSampleRabbits are reported
+	 */
+	public void setLogSampleRabbits(int logSampleRabbits) {
+		this.logSampleRabbits = logSampleRabbits;
+		log.setSampling(logSampleTicks, logSampleRabbits);
+	}
+
+	/**
+	 * Getter for the record file
+	 * @return recordFile, empty if the population is not recorded
+	 */
+	public String getRecordFile() {
+		return recordFile;
+	}
+
+	/**
+	 * Setter for the record file, taken into account when the model is built
+	 * @param recordFile, the file the population of every tick is recorded to, empty for none. A run restored
+	 * from a checkpoint keeps the records of the file up to the tick of the snapshot
+	 */
+	public void setRecordFile(String recordFile) {
+		this.recordFile = recordFile == null ? "" : recordFile;
+	}
+
+	/**
+	 * Getter for the checkpoint file
+	 * @return checkpointFile
+	 */
+	public String getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	/**
+	 * Setter for the checkpoint file, the snapshots of the run are written to it
+	 * @param checkpointFile, the new checkpoint file
+	 */
+	public void setCheckpointFile(String checkpointFile) {
+		this.checkpointFile = checkpointFile == null ? "" : checkpointFile;
+	}
+
+	/**
+	 * Getter for the checkpoint interval
+	 * @return checkpointInterval, 0 if no snapshot is taken
+	 */
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	/**
+	 * Setter for the checkpoint interval, used only when a checkpoint file is set
+	 * @param checkpointInterval, a snapshot is taken every checkpointInterval ticks, 0 for none
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/**
+	 * Getter for the restore file
+	 * @return restoreFile, empty if the model is built from its parameters
+	 */
+	public String getRestoreFile() {
+		return restoreFile;
+	}
+
+	/**
+	 * Setter for the restore file, taken into account when the model is built
+	 * The model then continues the run of the snapshot, with the parameters of the snapshot
+	 * @param restoreFile, the snapshot to continue from, empty for none
+	 */
+	public void setRestoreFile(String restoreFile) {
+		this.restoreFile = restoreFile == null ? "" : restoreFile;
+	}
+
+	/**
+	 * Getter for the headless mode
+	 * @return true if the model runs without any display or plot
+	 */
+	public boolean isHeadless() {
+		return headless;
+	}
+
+	/**
+	 * Setter for the headless mode, taken into account at setup
+	 * @param headless, true to run without any display or plot
+	 */
+	public void setHeadless(boolean headless) {
+		this.headless = headless;
+	}
+
+	/**
+	 * Getter for the simulation space
+	 * @return rgSpace
+	 */
+	public RabbitsGrassSimulationSpace getSpace() {
+		return rgSpace;
+	}
+
+	/**
+	 * Getter for the current tick, the number of rabbit steps since the model was built
+	 * @return tick
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	/**
+	 * Getter for the number of rabbits born during the last step
+	 * @return lastBirths
+	 */
+	public int getLastBirths() {
+		return lastBirths;
+	}
+
+	/**
+	 * Getter for the number of rabbits dead during the last step
+	 * @return lastDeaths
+	 */
+	public int getLastDeaths() {
+		return lastDeaths;
+	}
+
 	/**
 	 * Returns the name of the simulation
 	 * @return String name
@@ -433,8 +1469,13 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 	 */
 	public void setup() {
 			//System.out.println("Running setup");
+			finish();
 			rgSpace = null;
-			agentList = new ArrayList();
+			population = null;
+			IDNumber = 0;
+			tick = 0;
+			lastCheckpointTick = -1;
+			agentList = new ArrayList<RabbitsGrassSimulationAgent>();
 			schedule = new Schedule(1);
 
 			if (displaySurf != null){
@@ -455,18 +1496,21 @@ public class RabbitsGrassSimulationModel extends SimModelImpl {
 				populationEvolution.dispose();
 			}
 			populationEvolution = null;
+			if (boundedPlots != null) {
+				for (RabbitsGrassPlot plot : boundedPlots) {
+					plot.dispose();
+				}
+			}
+			boundedPlots = null;
+			lastBirths = 0;
+			lastDeaths = 0;
+
+			if (headless) {
+				return;
+			}
 
 			displaySurf = new DisplaySurface(this, "Rabbit Grass Model");
-			amountOfGrassInSpace = new OpenSequenceGraph("Amount Of Grass In Space",this);
-			amountOfRabbitsInSpace = new OpenSequenceGraph("Amount Of Rabbits In Space",this);
-			populationEvolution = new OpenSequenceGraph("Population Evolution", this);
-			amountOfGrassInSpace.setAxisTitles("Time", "Number of grass units");
-			amountOfRabbitsInSpace.setAxisTitles("Time", "Number of rabbits");
-			populationEvolution.setAxisTitles("Time", "Population evolution");
 			registerDisplaySurface("Rabbit Grass Model", displaySurf);
-			this.registerMediaProducer("Plot", amountOfGrassInSpace);
-			this.registerMediaProducer("Plot", amountOfRabbitsInSpace);
-			this.registerMediaProducer("Plot", populationEvolution);
 		}
 
 	/**
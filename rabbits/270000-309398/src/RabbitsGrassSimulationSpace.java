@@ -2,51 +2,296 @@
  * Class that implements the simulation space of the rabbits grass simulation.
  * @author 
  */
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
 import uchicago.src.sim.space.Object2DGrid;
 
 public class RabbitsGrassSimulationSpace {
 
-    private Object2DGrid grassSpace;
+    private RabbitsGrassField grassSpace;
+    //Agent Objects, allocated with the first agent: a population or a sparse world never needs it
     private Object2DGrid agentSpace;
 
+    //Cells without a rabbit, for constant-time placement
+    private RabbitsGrassFreeCells freeCells;
+
+    //One bit per cell, set if the cell holds a rabbit, kept in sync with agentSpace
+    private RabbitsGrassOccupancy occupancy;
+
+    //Running totals, kept up to date by every operation that changes the space
+    private int totalGrass;
+    private int totalRabbits;
+
+    //Random generator of everything that happens in the space
+    private SplittableRandom random;
+
+    //Kernel that spreads new grass
+    private RabbitsGrassGrowth growth;
+
+    //Summed-area table of the grass, kept when rabbits forage, null otherwise
+    private RabbitsGrassSummedArea grassSums;
+    private int foragingRadius;
+
+    //Set in sparse mode, instead of grassSpace, agentSpace, freeCells and occupancy
+    private RabbitsGrassChunkedWorld world;
+    private final int sizeX;
+    private final int sizeY;
+
+    //Probes of random cells before addAgent falls back to a scan, in sparse mode
+    private static final int PLACEMENT_PROBES = 64;
+
+    //Set when the rabbits are stored in a RabbitsGrassPopulation instead of agent Objects
+    private RabbitsGrassPopulation population;
+
     /**
-     * Class constructor
+     * Class constructor, with an unseeded random generator
      * @param size, size of the grid space
      */
     public RabbitsGrassSimulationSpace (int size) {
-        grassSpace = new Object2DGrid (size,size);
-        agentSpace = new Object2DGrid(size,size);
+        this(size, new SplittableRandom());
+    }
 
-        for(int i = 0; i < size; i++){
-            for(int j = 0; j < size; j++){
-                grassSpace.putObjectAt(i,j,new Integer(0));
-            }
+    /**
+     * Class constructor
+     * @param size, size of the grid space
+     * @param random, the random generator of the space and its rabbits
+     */
+    public RabbitsGrassSimulationSpace (int size, SplittableRandom random) {
+        this(size, random, false);
+    }
+
+    /**
+     * Class constructor
+     * A sparse space only allocates memory where there is grass or a rabbit, so that huge, mostly empty grids
+     * can be simulated. It holds agent Objects only (no population), and always scatters new grass
+     * @param size, size of the grid space
+     * @param random, the random generator of the space and its rabbits
+     * @param sparse, true for a sparse chunked space, false for dense arrays
+     */
+    public RabbitsGrassSimulationSpace (int size, SplittableRandom random, boolean sparse) {
+        this.random = random;
+        sizeX = size;
+        sizeY = size;
+        growth = new RabbitsGrassGrowth(RabbitsGrassGrowth.SCATTER, size, size);
+        if (sparse) {
+            world = new RabbitsGrassChunkedWorld(size, size);
+            return;
         }
+        grassSpace = new RabbitsGrassField(size,size);
+        freeCells = new RabbitsGrassFreeCells(size * size);
+        occupancy = new RabbitsGrassOccupancy(size, size);
+    }
+
+    /**
+     * Indicates if the space is sparse
+     * @return true if the grass and the rabbits are stored in a RabbitsGrassChunkedWorld
+     */
+    public boolean isSparse(){
+        return world != null;
+    }
+
+    /**
+     * Getter for the width of the space
+     * @return sizeX
+     */
+    public int getSizeX(){
+        return sizeX;
+    }
+
+    /**
+     * Getter for the height of the space
+     * @return sizeY
+     */
+    public int getSizeY(){
+        return sizeY;
+    }
+
+    /**
+     * Selects the kernel that spreads new grass
+     * @param mode, RabbitsGrassGrowth.SCATTER, MULTINOMIAL or POISSON
+     */
+    public void setGrowthMode(int mode){
+        growth = new RabbitsGrassGrowth(mode, sizeX, sizeY);
     }
 
     /**
      * Spreads grass randomly on the space, either where is already some grass or no grass
-     * @param grass, number of grass to be spread
+     * @param grass, number of grass to be spread (on average in POISSON mode)
      */
     public void spreadGrass(int grass){
+        if (world != null) {
+            // The bulk kernels visit every cell, the sparse space only scatters
+            for(int i = 0; i < grass; i++){
+                int x = random.nextInt(sizeX);
+                int y = random.nextInt(sizeY);
+                world.addGrass(x, y, 1);
+            }
+            totalGrass += grass;
+            return;
+        }
+        // Randomly place grass in grassSpace, with the selected kernel
+        totalGrass += growth.grow(grassSpace.cells(), grass, random);
+        if (grassSums != null) {
+            grassSums.rebuild(grassSpace.cells());
+        }
+    }
 
-        // Randomly place grass in grassSpace
-        for(int i = 0; i < grass; i++){
+    /**
+     * Setter for the radius of the square a foraging rabbit senses around each cell it could move to
+     * In a dense space, a summed-area table of the grass is kept while the radius is above 0. It is rebuilt
+     * when the grass grows, so foraging rabbits sense the grass as it was at the start of the rabbit step
+     * @param foragingRadius, the radius, 0 for rabbits moving at random
+     */
+    public void setForagingRadius(int foragingRadius){
+        this.foragingRadius = foragingRadius;
+        if (foragingRadius <= 0 || world != null) {
+            grassSums = null;
+        } else if (grassSums == null) {
+            grassSums = new RabbitsGrassSummedArea(sizeX, sizeY);
+            grassSums.rebuild(grassSpace.cells());
+        }
+    }
 
-            // Choose coordinates
-            int x = (int)(Math.random()*(grassSpace.getSizeX()));
-            int y = (int)(Math.random()*(grassSpace.getSizeY()));
+    /**
+     * Getter for the foraging radius
+     * @return foragingRadius, 0 if rabbits move at random
+     */
+    public int getForagingRadius(){
+        return foragingRadius;
+    }
 
-            // Get the value of the object at those coordinates
-            int I;
-            if(grassSpace.getObjectAt(x,y)!= null){
-                I = ((Integer)grassSpace.getObjectAt(x,y)).intValue();
+    /**
+     * Returns the grass in the square of radius r around a cell, the cell included
+     * Constant time from the summed-area table if there is one, which holds the grass as of the start of the
+     * rabbit step; O(r^2) from the live grass otherwise
+     * @param x, the x position of the center
+     * @param y, the y position of the center
+     * @param r, the radius, the square is 2r+1 cells wide (clamped to the size of the space)
+     * @return the total grass in the square
+     */
+    public int getGrassAround(int x, int y, int r){
+        if (grassSums != null) {
+            return grassSums.sum(x, y, r);
+        }
+        int width = Math.min(2 * r + 1, sizeX);
+        int height = Math.min(2 * r + 1, sizeY);
+        int total = 0;
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                total += getGrassAt(Math.floorMod(x - r + i, sizeX), Math.floorMod(y - r + j, sizeY));
             }
-            else{
-                I = 0;
+        }
+        return total;
+    }
+
+    /**
+     * Picks the direction of the neighbour cell whose square of radius foragingRadius holds the most grass
+     * Ties are broken uniformly at random
+     * @param x, the x position of the rabbit
+     * @param y, the y position of the rabbit
+     * @param random, the random generator to break ties with
+     * @return 1 (east, x + 1), 2 (west, x - 1), 3 (south, y + 1) or 4 (north, y - 1)
+     */
+    public int richestDirection(int x, int y, SplittableRandom random){
+        int best = 0;
+        int bestGrass = -1;
+        int ties = 0;
+        for (int v = 1; v <= 4; v++) {
+            int tx = v == 1 ? x + 1 : v == 2 ? x - 1 : x;
+            int ty = v == 3 ? y + 1 : v == 4 ? y - 1 : y;
+            int grass = getGrassAround((tx + sizeX) % sizeX, (ty + sizeY) % sizeY, foragingRadius);
+            if (grass > bestGrass) {
+                best = v;
+                bestGrass = grass;
+                ties = 1;
+            } else if (grass == bestGrass && random.nextInt(++ties) == 0) {
+                best = v;
             }
+        }
+        return best;
+    }
 
-            grassSpace.putObjectAt(x,y,new Integer(I + 1));
+    /**
+     * Getter for the random generator shared by the space and its rabbits
+     * @return random
+     */
+    public SplittableRandom getRandom(){
+        return random;
+    }
+
+    /**
+     * Replaces the random generator, e.g. when a snapshot reseeds it
+     * @param random, the new random generator
+     */
+    public void setRandom(SplittableRandom random){
+        this.random = random;
+    }
+
+    /**
+     * Replaces the grass of every cell, e.g. when a snapshot is restored
+     * @param grass, the grass values, row-major
+     */
+    public void restoreGrass(int[] grass){
+        if (world != null) {
+            totalGrass = 0;
+            for (int i = 0; i < grass.length; i++) {
+                world.addGrass(i % sizeX, i / sizeX, grass[i]);
+                totalGrass += grass[i];
+            }
+            return;
+        }
+        totalGrass = grassSpace.load(grass);
+        if (grassSums != null) {
+            grassSums.rebuild(grassSpace.cells());
+        }
+    }
+
+    /**
+     * Returns a copy of the grass of every cell, e.g. for a snapshot
+     * @return the grass values, row-major
+     */
+    public int[] copyGrass(){
+        if (world != null) {
+            if ((long) sizeX * sizeY > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("A " + sizeX + "x" + sizeY + " space is too large to be copied");
+            }
+            int[] grass = new int[sizeX * sizeY];
+            world.copyTo(grass, null);
+            return grass;
+        }
+        return grassSpace.toArray();
+    }
+
+    /**
+     * Returns the number of chunks of a sparse space that hold grass
+     * @return the number of chunks copied by copyGrassChunks
+     */
+    public int getGrassChunkCount(){
+        return world.getGrassChunkCount();
+    }
+
+    /**
+     * Copies the grass of a sparse space chunk by chunk, e.g. for a snapshot
+     * Only the chunks holding grass are copied, the space is never copied as a whole
+     * @param chunkXs, receives the chunk x of every chunk, getGrassChunkCount() long
+     * @param chunkYs, receives the chunk y of every chunk, getGrassChunkCount() long
+     * @param grass, receives the 64x64 grass cells of every chunk, row-major
+     */
+    public void copyGrassChunks(int[] chunkXs, int[] chunkYs, int[][] grass){
+        world.copyGrassChunks(chunkXs, chunkYs, grass);
+    }
+
+    /**
+     * Puts the grass of a sparse space back chunk by chunk, e.g. when a snapshot is restored
+     * @param chunkXs, the chunk x of every chunk
+     * @param chunkYs, the chunk y of every chunk
+     * @param grass, the 64x64 grass cells of every chunk, row-major
+     */
+    public void restoreGrassChunks(int[] chunkXs, int[] chunkYs, int[][] grass){
+        totalGrass = 0;
+        for (int i = 0; i < grass.length; i++) {
+            totalGrass += world.addGrassChunk(chunkXs[i], chunkYs[i], grass[i]);
         }
     }
 
@@ -57,32 +302,130 @@ public class RabbitsGrassSimulationSpace {
      * @return the energy of the grass
      */
     public int getGrassAt(int x, int y){
-        int i;
-        if(grassSpace.getObjectAt(x,y)!= null){
-            i = ((Integer)grassSpace.getObjectAt(x,y)).intValue();
+        if (world != null) {
+            return world.getGrass(x, y);
+        }
+        return grassSpace.get(x,y);
+    }
+
+    /**
+     * Sets the grass of a cell, e.g. when it is edited from a probe, keeping the grass total up to date
+     * The summed-area table catches up when the grass grows, as with the grass eaten
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @param grass, the new grass of the cell, 0 or more
+     */
+    public void setGrassAt(int x, int y, int grass){
+        if (grass < 0) {
+            throw new IllegalArgumentException("Grass cannot be negative: " + grass);
         }
-        else{
-            i = 0;
+        int delta;
+        if (world != null) {
+            delta = grass - world.takeGrass(x, y);
+            world.addGrass(x, y, grass);
+        } else {
+            delta = grass - grassSpace.get(x, y);
+            grassSpace.set(x, y, grass);
         }
-        return i;
+        totalGrass += delta;
     }
 
     /**
      * Getter for the grass space
-     * @return the grass space
+     * @return the grass space, null if the space is sparse
      */
-    public Object2DGrid getCurrentGrassSpace(){
+    public RabbitsGrassField getCurrentGrassSpace(){
         return grassSpace;
     }
 
+    /**
+     * Getter for the chunked world of a sparse space
+     * @return the world, null if the space is dense
+     */
+    public RabbitsGrassChunkedWorld getWorld(){
+        return world;
+    }
+
     /**
      * Getter for the agentSpace
-     * @return the agent space
+     * @return the agent space, null if the rabbits are stored in a population or the space is sparse
      */
     public Object2DGrid getCurrentAgentSpace(){
+        if (agentSpace == null && population == null && world == null) {
+            agentSpace = new Object2DGrid(sizeX, sizeY);
+        }
         return agentSpace;
     }
 
+    /**
+     * Stores the rabbits in a population instead of agent Objects in the agent space
+     * @param population, the population holding the rabbits
+     */
+    public void setPopulation(RabbitsGrassPopulation population){
+        if (world != null) {
+            throw new IllegalStateException("A population needs a dense space");
+        }
+        if (agentSpace != null) {
+            throw new IllegalStateException("The space already holds agent Objects");
+        }
+        this.population = population;
+    }
+
+    /**
+     * Getter for the population, if the rabbits are not stored as agent Objects
+     * @return the population, null if the rabbits are agent Objects
+     */
+    public RabbitsGrassPopulation getPopulation(){
+        return population;
+    }
+
+    /**
+     * Records that a rabbit entered an empty cell
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     */
+    public void occupyCell(int x, int y){
+        freeCells.occupy(grassSpace.index(x, y));
+        occupancy.set(x, y);
+        totalRabbits++;
+    }
+
+    /**
+     * Records that a rabbit left a cell
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     */
+    public void vacateCell(int x, int y){
+        freeCells.vacate(grassSpace.index(x, y));
+        occupancy.clear(x, y);
+        totalRabbits--;
+    }
+
+    /**
+     * Records that a rabbit moved from a cell to an empty one
+     * @param x, the x position of the cell left
+     * @param y, the y position of the cell left
+     * @param newX, the x position of the cell entered
+     * @param newY, the y position of the cell entered
+     */
+    public void relocateCell(int x, int y, int newX, int newY){
+        freeCells.vacate(grassSpace.index(x, y));
+        freeCells.occupy(grassSpace.index(newX, newY));
+        occupancy.clear(x, y);
+        occupancy.set(newX, newY);
+    }
+
+    /**
+     * Picks a uniformly random cell without rabbit
+     * @return the row-major index of the cell, -1 if every cell is occupied
+     */
+    public int randomFreeCell(){
+        if (world != null) {
+            throw new IllegalStateException("Free cells are only indexed in a dense space");
+        }
+        return freeCells.random(random);
+    }
+
     /**
      * Indicates if a cell is occupied
      * @param x, the x position of the cell
@@ -90,34 +433,98 @@ public class RabbitsGrassSimulationSpace {
      * @return true if the cell is occupied, false if not
      */
     public boolean isCellOccupied(int x, int y){
-        boolean retVal = false;
-        if(agentSpace.getObjectAt(x, y)!=null) retVal = true;
-        return retVal;
+        if (world != null) {
+            return world.getAgent(x, y) != null;
+        }
+        return occupancy.get(x, y);
+    }
+
+    /**
+     * Counts the rabbits in the square of radius r around a cell, the cell included
+     * @param x, the x position of the center
+     * @param y, the y position of the center
+     * @param r, the radius of the square
+     * @return the number of rabbits
+     */
+    public int countRabbitsAround(int x, int y, int r){
+        if (world != null) {
+            return world.countAround(x, y, r);
+        }
+        return occupancy.countAround(x, y, r);
+    }
+
+    /**
+     * Counts the rabbits north, west, south and east of a cell
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @return the number of neighbouring rabbits
+     */
+    public int countNeighbourRabbits(int x, int y){
+        if (world != null) {
+            return world.countNeighbours(x, y);
+        }
+        return occupancy.countNeighbours(x, y);
     }
 
     /**
-     * Adds an agent at a random available cell
+     * Adds an agent at a random available cell, picked uniformly from the free cells
+     * In sparse mode, random cells are probed instead, which almost always succeeds at once in a mostly
+     * empty space; after PLACEMENT_PROBES occupied cells, the first free cell from a random one is taken
      * @param agent, the agent to be added
-     * @return true if the operation was successfull, false if not
+     * @return true if the operation was successfull, false if every cell is occupied
      */
     public boolean addAgent(RabbitsGrassSimulationAgent agent){
-        boolean retVal = false;
-        int count = 0;
-        int countLimit = 10 * agentSpace.getSizeX() * agentSpace.getSizeY();
-
-        while((retVal==false) && (count < countLimit)){
-            int x = (int)(Math.random()*(agentSpace.getSizeX()));
-            int y = (int)(Math.random()*(agentSpace.getSizeY()));
-            if(isCellOccupied(x,y) == false){
-                agentSpace.putObjectAt(x,y,agent);
-                agent.setXY(x,y);
-                agent.setCarryDropSpace(this);
-                retVal = true;
+        if (world != null) {
+            for (int i = 0; i < PLACEMENT_PROBES; i++) {
+                int x = random.nextInt(sizeX);
+                int y = random.nextInt(sizeY);
+                if (world.getAgent(x, y) == null) {
+                    return addAgentAt(agent, x, y);
+                }
             }
-            count++;
+            if (totalRabbits >= (long) sizeX * sizeY) {
+                return false;
+            }
+            int x = random.nextInt(sizeX);
+            int y = random.nextInt(sizeY);
+            while (world.getAgent(x, y) != null) {
+                if (++x == sizeX) {
+                    x = 0;
+                    y = (y + 1) % sizeY;
+                }
+            }
+            return addAgentAt(agent, x, y);
+        }
+        int cell = randomFreeCell();
+        if(cell < 0){
+            return false;
         }
+        return addAgentAt(agent, cell % sizeX, cell / sizeX);
+    }
 
-        return retVal;
+    /**
+     * Adds an agent in a given cell, if it is available
+     * @param agent, the agent to be added
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @return true if the operation was successfull, false if the cell is occupied
+     */
+    public boolean addAgentAt(RabbitsGrassSimulationAgent agent, int x, int y){
+        if(isCellOccupied(x,y)){
+            return false;
+        }
+        if (world != null) {
+            x = Math.floorMod(x, sizeX);
+            y = Math.floorMod(y, sizeY);
+            world.putAgent(x, y, agent);
+            totalRabbits++;
+        } else {
+            getCurrentAgentSpace().putObjectAt(x,y,agent);
+            occupyCell(x,y);
+        }
+        agent.setXY(x,y);
+        agent.setCarryDropSpace(this);
+        return true;
     }
 
     /**
@@ -126,7 +533,15 @@ public class RabbitsGrassSimulationSpace {
      * @param y, the y position of the cell
      */
     public void removeAgentAt(int x, int y){
-        agentSpace.putObjectAt(x, y, null);
+        if(isCellOccupied(x, y)){
+            if (world != null) {
+                world.putAgent(x, y, null);
+                totalRabbits--;
+                return;
+            }
+            agentSpace.putObjectAt(x, y, null);
+            vacateCell(x, y);
+        }
     }
 
     /**
@@ -136,11 +551,23 @@ public class RabbitsGrassSimulationSpace {
      * @return the value of the grass retrieved
      */
     public int takeGrassAt(int x, int y){
-        int food = getGrassAt(x, y);
-        grassSpace.putObjectAt(x, y, new Integer(0));
+        int food = world != null ? world.takeGrass(x, y) : grassSpace.take(x, y);
+        totalGrass -= food;
         return food;
     }
 
+    /**
+     * Records grass taken from a cell directly from the grass field, bypassing takeGrassAt
+     * Used by the tiled and synchronous steps, whose workers cannot update the totals concurrently: their takes
+     * are recorded serially once they are done
+     * @param x, the x position of the cell
+     * @param y, the y position of the cell
+     * @param food, the grass taken from the cell
+     */
+    public void recordGrassTakenAt(int x, int y, int food){
+        totalGrass -= food;
+    }
+
     /**
      * Moves an agent Object from a position to another, if the target position is unoccupied
      * @param x, actual x position
@@ -151,11 +578,23 @@ public class RabbitsGrassSimulationSpace {
      */
     public boolean moveAgentAt(int x, int y, int newX, int newY){
         boolean retVal = false;
+        if (world != null) {
+            if (world.getAgent(newX, newY) != null) {
+                return false;
+            }
+            //Enter the new cell first, so that a chunk is not released and reallocated by a move inside it
+            RabbitsGrassSimulationAgent rga = (RabbitsGrassSimulationAgent) world.getAgent(x, y);
+            world.putAgent(newX, newY, rga);
+            world.putAgent(x, y, null);
+            rga.setXY(newX, newY);
+            return true;
+        }
         if(!isCellOccupied(newX, newY)){
             RabbitsGrassSimulationAgent rga = (RabbitsGrassSimulationAgent) agentSpace.getObjectAt(x, y);
-            removeAgentAt(x,y);
+            agentSpace.putObjectAt(x, y, null);
             rga.setXY(newX, newY);
             agentSpace.putObjectAt(newX, newY, rga);
+            relocateCell(x, y, newX, newY);
             retVal = true;
         }
         return retVal;
@@ -163,29 +602,59 @@ public class RabbitsGrassSimulationSpace {
 
     /**
      * Returns the agent Object situated in a cell
+     * Always null when the rabbits are stored in a population
      * @param x, the x position of the cell
      * @param y, the y position of the cell
      * @return the rabbit found, null if none is found
      */
     public RabbitsGrassSimulationAgent getAgentAt(int x, int y){
         RabbitsGrassSimulationAgent retVal = null;
-        if(agentSpace.getObjectAt(x, y) != null){
+        if (world != null) {
+            return (RabbitsGrassSimulationAgent) world.getAgent(x, y);
+        }
+        if(population == null && isCellOccupied(x, y)){
             retVal = (RabbitsGrassSimulationAgent) agentSpace.getObjectAt(x,y);
         }
         return retVal;
     }
 
+    /**
+     * Copies the grass and the rabbits of every cell, e.g. for a renderer drawing in another thread
+     * @param grass, receives the grass of every cell, row-major
+     * @param rabbits, receives the energy of the rabbit of every cell, row-major, 0 for an empty cell
+     */
+    public void snapshot(int[] grass, int[] rabbits){
+        if (world != null) {
+            Object[] agents = new Object[rabbits.length];
+            Arrays.fill(grass, 0);
+            world.copyTo(grass, agents);
+            for (int cell = 0; cell < agents.length; cell++) {
+                rabbits[cell] = agents[cell] == null ? 0 : Math.max(((RabbitsGrassSimulationAgent) agents[cell]).getEnergy(), 1);
+            }
+            return;
+        }
+        int[] cells = grassSpace.cells();
+        System.arraycopy(cells, 0, grass, 0, cells.length);
+        Arrays.fill(rabbits, 0);
+        for (int cell = occupancy.nextOccupied(0); cell >= 0; cell = occupancy.nextOccupied(cell + 1)) {
+            int x = cell % sizeX;
+            int y = cell / sizeX;
+            int energy;
+            if (population != null) {
+                energy = population.getEnergy(population.getSlotAt(x, y));
+            } else {
+                energy = ((RabbitsGrassSimulationAgent) agentSpace.getObjectAt(x, y)).getEnergy();
+            }
+            //A rabbit that starved this step is still drawn until it is reaped
+            rabbits[cell] = Math.max(energy, 1);
+        }
+    }
+
     /**
      * Returns total number of grass at a given simulation step
      * @return total number of grass
      */
     public int getTotalGrass(){
-        int totalGrass = 0;
-        for(int i = 0; i < agentSpace.getSizeX(); i++){
-            for(int j = 0; j < agentSpace.getSizeY(); j++){
-                totalGrass += getGrassAt(i,j);
-            }
-        }
         return totalGrass;
     }
 
@@ -194,15 +663,45 @@ public class RabbitsGrassSimulationSpace {
      * @return totalRabbits, total number of rabbits
      */
     public int getTotalRabbits(){
-        int totalRabbits = 0;
-        for(int i = 0; i < agentSpace.getSizeX(); i++){
-            for(int j = 0; j < agentSpace.getSizeY(); j++){
-                if (isCellOccupied(i,j)) {
-                    ++totalRabbits;
+        return totalRabbits;
+    }
+
+    /**
+     * Debug check: recounts grass and rabbits cell by cell and compares them with the running totals
+     * @throws IllegalStateException if a total does not match the content of the space
+     */
+    public void verifyTotals(){
+        if (world != null) {
+            long[] scanned = world.scan();
+            if(scanned[0] != totalGrass || scanned[1] != totalRabbits){
+                throw new IllegalStateException("Space totals out of sync: grass " + totalGrass + " (scanned " + scanned[0]
+                        + "), rabbits " + totalRabbits + " (scanned " + scanned[1] + ")");
+            }
+            return;
+        }
+        int scannedGrass = 0;
+        int scannedRabbits = 0;
+        for(int i = 0; i < sizeX; i++){
+            for(int j = 0; j < sizeY; j++){
+                scannedGrass += getGrassAt(i,j);
+                boolean hasRabbit = population != null ? population.isCellOccupied(i,j)
+                        : agentSpace != null && agentSpace.getObjectAt(i,j) != null;
+                if (hasRabbit) {
+                    ++scannedRabbits;
+                }
+                if (hasRabbit != isCellOccupied(i,j)) {
+                    throw new IllegalStateException("Occupancy out of sync at " + i + ", " + j);
                 }
             }
         }
-
-        return totalRabbits;
+        //Checked after the grass grows, when the table was just rebuilt
+        if (grassSums != null && grassSums.total() != scannedGrass) {
+            throw new IllegalStateException("Grass table out of sync: " + grassSums.total() + " (scanned " + scannedGrass + ")");
+        }
+        int countedRabbits = occupancy.count();
+        if(scannedGrass != totalGrass || scannedRabbits != totalRabbits || countedRabbits != totalRabbits){
+            throw new IllegalStateException("Space totals out of sync: grass " + totalGrass + " (scanned " + scannedGrass
+                    + "), rabbits " + totalRabbits + " (scanned " + scannedRabbits + ", counted " + countedRabbits + ")");
+        }
     }
 }
@@ -0,0 +1,109 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Class that caches the rabbit sprites shared by every rabbit of the simulation.
+ * Each image is read and decoded once, then scaled once to the size of a display cell.
+ * The sprite drawn depends on the energy of the rabbit: every model has its own sprites object holding its
+ * energy tiers, while the images are shared by all of them.
+ * @author
+ */
+public class RabbitsGrassSprites {
+
+    //Sprites by energy tier: weak, normal, ready to reproduce
+    private static final String[] FILES = {"img/rabbit1.png", "img/rabbit.png", "img/rabbit2.png"};
+
+    private static BufferedImage[] sources;
+    private static BufferedImage[] scaled;
+    private static int scaledWidth = -1;
+    private static int scaledHeight = -1;
+
+    private final int weakEnergy;
+    private final int strongEnergy;
+
+    /**
+     * Class constructor
+     * @param weakEnergy, rabbits with this energy or less use the weak sprite
+     * @param strongEnergy, rabbits with more energy than this use the strong sprite
+     */
+    public RabbitsGrassSprites(int weakEnergy, int strongEnergy) {
+        this.weakEnergy = weakEnergy;
+        this.strongEnergy = strongEnergy;
+    }
+
+    /**
+     * Returns the sprite of a rabbit, scaled to a display cell
+     * @param energy, the energy of the rabbit
+     * @param width, the width of a display cell
+     * @param height, the height of a display cell
+     * @return the sprite, null if it could not be read
+     */
+    public BufferedImage getSprite(int energy, int width, int height) {
+        if (energy <= weakEnergy) {
+            return getTier(0, width, height);
+        } else if (energy > strongEnergy) {
+            return getTier(2, width, height);
+        }
+        return getTier(1, width, height);
+    }
+
+    /**
+     * Returns the shared sprite of a tier, scaled to a display cell
+     * @param tier, 0 for weak, 1 for normal, 2 for ready to reproduce
+     * @param width, the width of a display cell
+     * @param height, the height of a display cell
+     * @return the sprite, null if it could not be read
+     */
+    private static synchronized BufferedImage getTier(int tier, int width, int height) {
+        if (sources == null) {
+            load();
+        }
+        if (width != scaledWidth || height != scaledHeight) {
+            scaled = new BufferedImage[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                scaled[i] = scale(sources[i], width, height);
+            }
+            scaledWidth = width;
+            scaledHeight = height;
+        }
+        return scaled[tier];
+    }
+
+    /**
+     * Reads and decodes every sprite
+     */
+    private static void load() {
+        sources = new BufferedImage[FILES.length];
+        for (int i = 0; i < FILES.length; i++) {
+            try {
+                sources[i] = ImageIO.read(new File(FILES[i]));
+            } catch (IOException e) {
+                RabbitsGrassLog.shared().error("image read not succesfull: " + FILES[i]);
+            }
+        }
+    }
+
+    /**
+     * Scales an image to a given size
+     * @param image, the image to scale
+     * @param width, the target width
+     * @param height, the target height
+     * @return the scaled image, null if the image or the size is missing
+     */
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        if (image == null || width <= 0 || height <= 0) {
+            return image;
+        }
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = result.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return result;
+    }
+}
@@ -0,0 +1,191 @@
+import uchicago.src.sim.analysis.Sequence;
+
+/**
+ * Class that watches the rabbits and grass series of a run and tells when the run can stop early:
+ * when the rabbits are extinct, when they have filled the space for a whole window of ticks, or when both
+ * series have settled into a steady state, constant or periodic, over a rolling window of ticks.
+ *
+ * A window is steady when its older and newer halves have the same mean and the same standard deviation,
+ * within a tolerance relative to the mean of the window. An oscillation is thus steady as long as the
+ * window spans a few of its periods; its period is then estimated from the autocorrelation of the rabbits.
+ * @author
+ */
+public class RabbitsGrassSteadyState {
+
+    public static final int RUNNING = 0;
+    public static final int EXTINCTION = 1;
+    public static final int SATURATION = 2;
+    public static final int STEADY_STATE = 3;
+
+    private final Sequence rabbitsSource;
+    private final Sequence grassSource;
+    private final int capacity;
+    private final int window;
+    private final double tolerance;
+
+    //Last window of values, as ring buffers
+    private final double[] rabbits;
+    private final double[] grass;
+    private int next;
+    private long observed;
+    private int saturatedTicks;
+
+    private int state = RUNNING;
+    private long stopTick;
+    private int period;
+
+    /**
+     * Class constructor
+     * @param rabbitsSource, the number of rabbits in the space
+     * @param grassSource, the total grass in the space
+     * @param capacity, the number of cells of the space
+     * @param window, the number of ticks of the rolling window, at least 4
+     * @param tolerance, the relative tolerance of the steady state test, e.g. 0.05
+     */
+    public RabbitsGrassSteadyState(Sequence rabbitsSource, Sequence grassSource, int capacity, int window, double tolerance) {
+        this.rabbitsSource = rabbitsSource;
+        this.grassSource = grassSource;
+        this.capacity = capacity;
+        this.window = Math.max(window, 4) & ~1;
+        this.tolerance = tolerance;
+        rabbits = new double[this.window];
+        grass = new double[this.window];
+    }
+
+    /**
+     * Reads the sources at the end of a tick and checks whether the run can stop
+     * @param tick, the tick that just ended
+     * @return true if the run can stop, getState() telling why
+     */
+    public boolean check(long tick) {
+        if (state != RUNNING) {
+            return true;
+        }
+        double r = rabbitsSource.getSValue();
+        double g = grassSource.getSValue();
+        rabbits[next] = r;
+        grass[next] = g;
+        next = next + 1 == window ? 0 : next + 1;
+        observed++;
+
+        if (r == 0) {
+            return stop(EXTINCTION, tick);
+        }
+        saturatedTicks = r >= capacity * (1 - tolerance) ? saturatedTicks + 1 : 0;
+        if (saturatedTicks >= window) {
+            return stop(SATURATION, tick);
+        }
+        if (observed >= window && steady(rabbits) && steady(grass)) {
+            period = estimatePeriod(rabbits);
+            return stop(STEADY_STATE, tick);
+        }
+        return false;
+    }
+
+    private boolean stop(int reason, long tick) {
+        state = reason;
+        stopTick = tick;
+        return true;
+    }
+
+    /**
+     * Indicates if the two halves of the window of a series have the same mean and standard deviation
+     * @param series, the ring buffer of the series, full
+     * @return true if the series is steady over the window
+     */
+    private boolean steady(double[] series) {
+        int half = window / 2;
+        double sumOld = 0;
+        double sumNew = 0;
+        for (int i = 0; i < half; i++) {
+            sumOld += series[(next + i) % window];
+            sumNew += series[(next + half + i) % window];
+        }
+        double meanOld = sumOld / half;
+        double meanNew = sumNew / half;
+        double scale = tolerance * Math.max((meanOld + meanNew) / 2, 1);
+        if (Math.abs(meanOld - meanNew) > scale) {
+            return false;
+        }
+        double m2Old = 0;
+        double m2New = 0;
+        for (int i = 0; i < half; i++) {
+            double dOld = series[(next + i) % window] - meanOld;
+            double dNew = series[(next + half + i) % window] - meanNew;
+            m2Old += dOld * dOld;
+            m2New += dNew * dNew;
+        }
+        return Math.abs(Math.sqrt(m2Old / half) - Math.sqrt(m2New / half)) <= scale;
+    }
+
+    /**
+     * Estimates the period of a series from the first peak of its autocorrelation over the window
+     * @param series, the ring buffer of the series, full
+     * @return the period in ticks, 0 if the series shows no clear period
+     */
+    private int estimatePeriod(double[] series) {
+        double mean = 0;
+        for (double v : series) {
+            mean += v;
+        }
+        mean /= window;
+        double variance = 0;
+        for (double v : series) {
+            variance += (v - mean) * (v - mean);
+        }
+        if (variance == 0) {
+            return 0;
+        }
+        double previous = 1;
+        boolean falling = true;
+        for (int lag = 1; lag <= window / 2; lag++) {
+            double c = 0;
+            for (int i = lag; i < window; i++) {
+                c += (series[(next + i) % window] - mean) * (series[(next + i - lag) % window] - mean);
+            }
+            c /= variance;
+            if (falling) {
+                falling = c < previous;
+            } else if (c < previous) {
+                //The previous lag was the first peak after the autocorrelation started rising again
+                return previous > 0.3 ? lag - 1 : 0;
+            }
+            previous = c;
+        }
+        return 0;
+    }
+
+    /**
+     * Getter for the state of the run
+     * @return RUNNING, EXTINCTION, SATURATION or STEADY_STATE
+     */
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * Getter for the tick the stop was detected at
+     * @return stopTick, 0 while running
+     */
+    public long getStopTick() {
+        return stopTick;
+    }
+
+    /**
+     * Returns why the run can stop
+     * @return a description of the reason, null while running
+     */
+    public String getReason() {
+        switch (state) {
+            case EXTINCTION:
+                return "extinction at tick " + stopTick;
+            case SATURATION:
+                return "rabbits filled the space for " + window + " ticks at tick " + stopTick;
+            case STEADY_STATE:
+                return "steady state over ticks " + (stopTick - window + 1) + "-" + stopTick
+                        + (period > 0 ? ", period about " + period + " ticks" : "");
+            default:
+                return null;
+        }
+    }
+}
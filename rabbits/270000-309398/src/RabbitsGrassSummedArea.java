@@ -0,0 +1,96 @@
+/**
+ * Class that answers "how much grass is there in the square of radius r around a cell" in constant time,
+ * with a summed-area table of the grass field. Squares wrap around, as the space is a torus.
+ *
+ * The table is rebuilt from the grass field once per tick, after the grass grows, and is not updated in
+ * between: queries return the grass as it was at the start of the rabbit step, whatever the rabbits eat
+ * during the step. Every query reads at most 16 entries of the table.
+ * @author
+ */
+public class RabbitsGrassSummedArea {
+
+    private final int sizeX;
+    private final int sizeY;
+
+    //sums[y * (sizeX + 1) + x] is the grass of the cells [0, x) x [0, y)
+    private final int[] sums;
+
+    /**
+     * Class constructor
+     * @param sizeX, width of the grass field
+     * @param sizeY, height of the grass field
+     */
+    public RabbitsGrassSummedArea(int sizeX, int sizeY) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        sums = new int[(sizeX + 1) * (sizeY + 1)];
+    }
+
+    /**
+     * Rebuilds the table from the grass field
+     * @param grass, the grass of every cell, row-major
+     */
+    public void rebuild(int[] grass) {
+        int stride = sizeX + 1;
+        for (int y = 0; y < sizeY; y++) {
+            int row = 0;
+            int above = y * stride;
+            int here = above + stride;
+            int cell = y * sizeX;
+            for (int x = 0; x < sizeX; x++) {
+                row += grass[cell + x];
+                sums[here + x + 1] = sums[above + x + 1] + row;
+            }
+        }
+    }
+
+    /**
+     * Returns the grass of the cells [0, x) x [0, y)
+     */
+    private int prefix(int x, int y) {
+        return sums[y * (sizeX + 1) + x];
+    }
+
+    /**
+     * Returns the grass of the cells [x0, x1) x [y0, y1), without wrapping
+     */
+    private int rectangle(int x0, int y0, int x1, int y1) {
+        return prefix(x1, y1) - prefix(x0, y1) - prefix(x1, y0) + prefix(x0, y0);
+    }
+
+    /**
+     * Returns the grass of the cells [x0, x0 + width) x [y0, y1), wrapping around in x
+     */
+    private int rows(int x0, int width, int y0, int y1) {
+        if (x0 + width <= sizeX) {
+            return rectangle(x0, y0, x0 + width, y1);
+        }
+        return rectangle(x0, y0, sizeX, y1) + rectangle(0, y0, x0 + width - sizeX, y1);
+    }
+
+    /**
+     * Returns the grass in the square of radius r around a cell, the cell included
+     * @param x, the x position of the center
+     * @param y, the y position of the center
+     * @param r, the radius, the square is 2r+1 cells wide (clamped to the size of the field)
+     * @return the total grass in the square
+     */
+    public int sum(int x, int y, int r) {
+        int width = Math.min(2 * r + 1, sizeX);
+        int height = Math.min(2 * r + 1, sizeY);
+        int x0 = Math.floorMod(x - r, sizeX);
+        int y0 = Math.floorMod(y - r, sizeY);
+        if (y0 + height <= sizeY) {
+            return rows(x0, width, y0, y0 + height);
+        }
+        return rows(x0, width, y0, sizeY) + rows(x0, width, 0, y0 + height - sizeY);
+    }
+
+    /**
+     * Returns the grass of the whole field, as of the last rebuild
+     * @return the total grass
+     */
+    public int total() {
+        return prefix(sizeX, sizeY);
+    }
+}
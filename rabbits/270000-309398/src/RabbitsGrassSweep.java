@@ -0,0 +1,353 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Class that sweeps the parameters of the rabbits grass simulation.
+ * Every combination of the swept values is run for a number of replicas, each replica being an
+ * independent headless model, and the replicas run concurrently on a ForkJoinPool.
+ * The results are aggregated into one summary table, one row per combination.
+ * With StopWindow set, replicas stop as soon as they go extinct or settle (RabbitsGrassSteadyState): their
+ * means are then over the ticks they ran, and the table tells how many stopped early and their mean length.
+ * Optionally, per-tick statistics of every combination (RabbitsGrassEnsemble) are merged as replicas end,
+ * and the rows of a combination are appended to the table of these statistics once all its replicas ended.
+ * @author
+ */
+public class RabbitsGrassSweep {
+
+    private final List<String> names = new ArrayList<String>();
+    private final List<String[]> values = new ArrayList<String[]>();
+    private final int ticks;
+    private final int replicas;
+    private final int threads;
+    private long seed = System.nanoTime();
+
+    //Per-tick statistics of every combination, null if no ensemble table is written
+    private String ensembleFile;
+    private RabbitsGrassEnsemble[] ensembles;
+    //Replicas merged into every combination, guarded by the ensemble of the combination
+    private int[] merged;
+    //Table of the statistics, guarded by itself
+    private BufferedWriter ensembleOut;
+
+    /**
+     * Class constructor
+     * @param ticks, the number of ticks of every replica
+     * @param replicas, the number of replicas of every combination
+     * @param threads, the number of replicas run concurrently
+     */
+    public RabbitsGrassSweep(int ticks, int replicas, int threads) {
+        this.ticks = ticks;
+        this.replicas = replicas;
+        this.threads = threads;
+    }
+
+    /**
+     * Main function
+     * @param args, the number of ticks, the number of replicas, the output file and Parameter=values pairs,
+     * the values being either a single value, a list "10,20,40" or a range "from:to:step";
+     * EnsembleFile=<file> also writes the per-tick statistics of every combination to that file
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.out.println("Usage: MainRabbit --sweep <ticks> <replicas> <output file> [Parameter=values ...]");
+            return;
+        }
+        RabbitsGrassSweep sweep = new RabbitsGrassSweep(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                Runtime.getRuntime().availableProcessors());
+        for (int i = 3; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected Parameter=values, got " + args[i]);
+            }
+            if (args[i].substring(0, eq).equals("EnsembleFile")) {
+                sweep.setEnsembleFile(args[i].substring(eq + 1));
+                continue;
+            }
+            sweep.addParameter(args[i].substring(0, eq), parseValues(args[i].substring(eq + 1)));
+        }
+        sweep.run(args[2]);
+    }
+
+    /**
+     * Parses the values of a swept parameter
+     * @param spec, a single value, a list "10,20,40" or an integer range "from:to:step"
+     * @return the values
+     */
+    public static String[] parseValues(String spec) {
+        if (spec.indexOf(':') >= 0) {
+            String[] range = spec.split(":");
+            int from = Integer.parseInt(range[0]);
+            int to = Integer.parseInt(range[1]);
+            int step = range.length > 2 ? Integer.parseInt(range[2]) : 1;
+            if (step <= 0) {
+                throw new IllegalArgumentException("Range step should be positive: " + spec);
+            }
+            List<String> result = new ArrayList<String>();
+            for (int v = from; v <= to; v += step) {
+                result.add(Integer.toString(v));
+            }
+            return result.toArray(new String[result.size()]);
+        }
+        return spec.split(",");
+    }
+
+    /**
+     * Adds a swept parameter
+     * @param name, the name of the parameter, one of getInitParam()
+     * @param parameterValues, the values the parameter takes
+     */
+    public void addParameter(String name, String[] parameterValues) {
+        names.add(name);
+        values.add(parameterValues);
+    }
+
+    /**
+     * Setter for the seed the replica seeds are derived from, unless Seed itself is swept
+     * @param seed, the new seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Setter for the file of the per-tick statistics
+     * @param ensembleFile, the file, null to skip the statistics
+     */
+    public void setEnsembleFile(String ensembleFile) {
+        this.ensembleFile = ensembleFile;
+    }
+
+    /**
+     * Returns the number of parameter combinations
+     * @return the size of the grid
+     */
+    public int getCombinations() {
+        int combinations = 1;
+        for (String[] v : values) {
+            combinations *= v.length;
+        }
+        return combinations;
+    }
+
+    /**
+     * Returns the values of a combination
+     * @param combination, the index of the combination
+     * @return the value of every swept parameter
+     */
+    public String[] getCombination(int combination) {
+        String[] result = new String[names.size()];
+        for (int p = names.size() - 1; p >= 0; p--) {
+            String[] v = values.get(p);
+            result[p] = v[combination % v.length];
+            combination /= v.length;
+        }
+        return result;
+    }
+
+    /**
+     * Runs every replica of every combination and writes the summary table
+     * @param outputFile, the file of the summary table
+     * @throws Exception if a replica fails or the table cannot be written
+     */
+    public void run(String outputFile) throws Exception {
+        int combinations = getCombinations();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<Future<ReplicaResult>> futures = new ArrayList<Future<ReplicaResult>>();
+        SplittableRandom seeds = new SplittableRandom(seed);
+        if (ensembleFile != null) {
+            ensembles = new RabbitsGrassEnsemble[combinations];
+            for (int c = 0; c < combinations; c++) {
+                ensembles[c] = new RabbitsGrassEnsemble(ticks);
+            }
+            merged = new int[combinations];
+            ensembleOut = new BufferedWriter(new FileWriter(ensembleFile));
+            StringBuilder header = new StringBuilder();
+            for (String name : names) {
+                header.append(name).append(',');
+            }
+            header.append(RabbitsGrassEnsemble.header());
+            ensembleOut.write(header.toString());
+            ensembleOut.newLine();
+            ensembleOut.flush();
+        }
+        try {
+            for (int c = 0; c < combinations; c++) {
+                for (int r = 0; r < replicas; r++) {
+                    final int index = c;
+                    final String[] combination = getCombination(c);
+                    final long replicaSeed = seeds.nextLong();
+                    futures.add(pool.submit(() -> runReplica(index, combination, replicaSeed)));
+                }
+            }
+            writeSummary(outputFile, futures);
+        } finally {
+            pool.shutdownNow();
+            if (ensembleOut != null) {
+                ensembleOut.close();
+                ensembleOut = null;
+            }
+        }
+    }
+
+    /**
+     * Runs one replica, with its own model, space and agents
+     * @param index, the index of the combination
+     * @param combination, the values of the swept parameters
+     * @param replicaSeed, the seed of the replica, overridden if Seed is swept
+     * @return the result of the replica
+     * @throws IOException if the runner fails
+     */
+    protected ReplicaResult runReplica(int index, String[] combination, long replicaSeed) throws IOException {
+        RabbitsGrassSimulationModel model = new RabbitsGrassSimulationModel();
+        model.setSeed(replicaSeed);
+        for (int p = 0; p < names.size(); p++) {
+            RabbitsGrassBatchRunner.setParameter(model, names.get(p), combination[p]);
+        }
+        final ReplicaResult result = new ReplicaResult();
+        final RabbitsGrassEnsemble trajectory = ensembles != null ? new RabbitsGrassEnsemble(ticks) : null;
+        RabbitsGrassBatchRunner runner = new RabbitsGrassBatchRunner(model, ticks, null);
+        runner.setTickListener(new RabbitsGrassBatchRunner.TickListener() {
+            public void tick(int tick, RabbitsGrassSimulationModel m) {
+                result.add(m);
+                if (trajectory != null) {
+                    RabbitsGrassSimulationSpace rgSpace = m.getSpace();
+                    trajectory.add(tick, rgSpace.getTotalRabbits(), rgSpace.getTotalGrass());
+                }
+            }
+        });
+        runner.run();
+        result.ticksPerSecond = runner.getTicksPerSecond();
+        result.stoppedEarly = model.getStopReason() != null;
+        if (trajectory != null) {
+            mergeEnsemble(index, trajectory);
+        }
+        return result;
+    }
+
+    /**
+     * Merges the statistics of a finished replica into its combination
+     * Only the replicas of the same combination wait for each other while merging. When the last replica of
+     * the combination is merged, the rows of the combination are formatted and appended to the table, the
+     * table being locked only while they are appended
+     * @param index, the index of the combination
+     * @param trajectory, the statistics of the replica
+     * @throws IOException if the rows cannot be written
+     */
+    private void mergeEnsemble(int index, RabbitsGrassEnsemble trajectory) throws IOException {
+        RabbitsGrassEnsemble ensemble = ensembles[index];
+        synchronized (ensemble) {
+            ensemble.merge(trajectory);
+            if (++merged[index] < replicas) {
+                return;
+            }
+        }
+        //Every replica of the combination is merged, its ensemble does not change anymore
+        StringBuilder prefix = new StringBuilder();
+        for (String v : getCombination(index)) {
+            prefix.append(v).append(',');
+        }
+        StringWriter rows = new StringWriter();
+        BufferedWriter buffer = new BufferedWriter(rows);
+        ensemble.write(buffer, prefix.toString());
+        buffer.flush();
+        synchronized (ensembleOut) {
+            ensembleOut.write(rows.toString());
+            ensembleOut.flush();
+        }
+    }
+
+    /**
+     * Waits for the replicas and writes one row per combination
+     * @param outputFile, the file of the summary table
+     * @param futures, the replicas, grouped by combination
+     * @throws Exception if a replica fails or the table cannot be written
+     */
+    private void writeSummary(String outputFile, List<Future<ReplicaResult>> futures) throws Exception {
+        BufferedWriter out = new BufferedWriter(new FileWriter(outputFile));
+        try {
+            StringBuilder header = new StringBuilder();
+            for (String name : names) {
+                header.append(name).append(',');
+            }
+            header.append("replicas,extinctions,finalRabbits,finalGrass,meanRabbits,meanGrass,births,deaths,ticksPerSecond,earlyStops,meanTicks");
+            out.write(header.toString());
+            out.newLine();
+
+            for (int c = 0; c < getCombinations(); c++) {
+                ReplicaResult sum = new ReplicaResult();
+                int extinctions = 0;
+                int earlyStops = 0;
+                for (int r = 0; r < replicas; r++) {
+                    ReplicaResult result = futures.get(c * replicas + r).get();
+                    sum.merge(result);
+                    if (result.finalRabbits == 0) extinctions++;
+                    if (result.stoppedEarly) earlyStops++;
+                }
+                StringBuilder row = new StringBuilder();
+                for (String v : getCombination(c)) {
+                    row.append(v).append(',');
+                }
+                row.append(replicas).append(',')
+                        .append(extinctions).append(',')
+                        .append((double) sum.finalRabbits / replicas).append(',')
+                        .append((double) sum.finalGrass / replicas).append(',')
+                        .append(sum.sumRabbits / sum.ticks).append(',')
+                        .append(sum.sumGrass / sum.ticks).append(',')
+                        .append((double) sum.births / replicas).append(',')
+                        .append((double) sum.deaths / replicas).append(',')
+                        .append(Math.round(sum.ticksPerSecond / replicas)).append(',')
+                        .append(earlyStops).append(',')
+                        .append((double) sum.ticks / replicas);
+                out.write(row.toString());
+                out.newLine();
+                out.flush();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Result of one replica, or sum of the results of several replicas
+     */
+    static class ReplicaResult {
+        long ticks;
+        long finalRabbits;
+        long finalGrass;
+        double sumRabbits;
+        double sumGrass;
+        long births;
+        long deaths;
+        double ticksPerSecond;
+        boolean stoppedEarly;
+
+        void add(RabbitsGrassSimulationModel model) {
+            RabbitsGrassSimulationSpace rgSpace = model.getSpace();
+            ticks++;
+            finalRabbits = rgSpace.getTotalRabbits();
+            finalGrass = rgSpace.getTotalGrass();
+            sumRabbits += finalRabbits;
+            sumGrass += finalGrass;
+            births += model.getLastBirths();
+            deaths += model.getLastDeaths();
+        }
+
+        void merge(ReplicaResult other) {
+            ticks += other.ticks;
+            finalRabbits += other.finalRabbits;
+            finalGrass += other.finalGrass;
+            sumRabbits += other.sumRabbits;
+            sumGrass += other.sumGrass;
+            births += other.births;
+            deaths += other.deaths;
+            ticksPerSecond += other.ticksPerSecond;
+        }
+    }
+}
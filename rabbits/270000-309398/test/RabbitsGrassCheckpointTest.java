@@ -0,0 +1,154 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that a run restored from a checkpoint continues exactly as the original run did.
+ * For every configuration, a run of 2 * HALF ticks writes a checkpoint at tick HALF; a second run restores
+ * that checkpoint and runs HALF more ticks. The series of both runs must be identical after tick HALF.
+ * The restored run is given no parameter but the checkpoint, so that every parameter affecting the run
+ * has to be taken from the checkpoint.
+ * Both runs also record to the same record file: after the restore, it must hold the records of the whole
+ * straight run, the records before the checkpoint being kept rather than truncated.
+ * Usage: java -cp <classes> RabbitsGrassCheckpointTest, exits with status 1 if a configuration fails.
+ * @author
+ */
+public class RabbitsGrassCheckpointTest {
+
+    private static final int HALF = 200;
+
+    //Parameters shared by every configuration: small enough to run fast, with many births and deaths
+    private static final String[] COMMON = { "GridSize=30", "GrassGrowthRate=60", "BirthThreshold=15",
+            "LossReproduction=5", "Seed=42" };
+
+    //Configurations, on top of the common parameters
+    private static final String[][] CONFIGURATIONS = {
+            {},
+            { "CompactPopulation=true" },
+            { "CompactPopulation=true", "StepTiles=3" },
+            { "GrassGrowthMode=1" },
+            { "GrassGrowthMode=2" },
+            { "ForagingRadius=2" },
+            { "CompactPopulation=true", "ForagingRadius=2" },
+            { "CompactPopulation=true", "SynchronousStep=true" },
+            { "SparseWorld=true" },
+            { "SparseWorld=true", "GridSize=200" },
+    };
+
+    /**
+     * Main function
+     * @param args, unused
+     */
+    public static void main(String[] args) throws IOException {
+        File directory = new File(System.getProperty("java.io.tmpdir"));
+        int failures = 0;
+        for (String[] configuration : CONFIGURATIONS) {
+            String name = configuration.length == 0 ? "default" : String.join(" ", configuration);
+            String error = check(directory, configuration);
+            System.out.println((error == null ? "ok     " : "FAILED ") + name + (error == null ? "" : ": " + error));
+            if (error != null) {
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a configuration straight and from its checkpoint, and compares the two series
+     * @param directory, where the checkpoint and the series are written
+     * @param configuration, the parameters of the configuration
+     * @return a description of the first difference, null if the runs match
+     * @throws IOException if a run fails
+     */
+    private static String check(File directory, String[] configuration) throws IOException {
+        File checkpoint = new File(directory, "rabbits-checkpoint-test.bin");
+        File straight = new File(directory, "rabbits-checkpoint-test-straight.csv");
+        File restored = new File(directory, "rabbits-checkpoint-test-restored.csv");
+        File record = new File(directory, "rabbits-checkpoint-test.rec");
+        checkpoint.delete();
+
+        RabbitsGrassSimulationModel model = model(configuration);
+        model.setCheckpointFile(checkpoint.getPath());
+        model.setCheckpointInterval(HALF);
+        model.setRecordFile(record.getPath());
+        new RabbitsGrassBatchRunner(model, 2 * HALF, straight.getPath()).run();
+        if (!checkpoint.exists()) {
+            return "no checkpoint written";
+        }
+        List<String> recorded = readRecords(record);
+
+        model = new RabbitsGrassSimulationModel();
+        model.setLogLevel(RabbitsGrassLog.ERROR);
+        model.setRestoreFile(checkpoint.getPath());
+        model.setRecordFile(record.getPath());
+        new RabbitsGrassBatchRunner(model, HALF, restored.getPath()).run();
+        List<String> continued = readRecords(record);
+        if (!recorded.equals(continued)) {
+            return recorded.size() + " records in the straight run, " + continued.size() + " after the restore";
+        }
+
+        List<String> expected = read(straight);
+        List<String> actual = read(restored);
+        //Skip the header and the ticks before the checkpoint
+        expected = expected.subList(HALF + 1, expected.size());
+        actual = actual.subList(1, actual.size());
+        if (expected.size() != actual.size()) {
+            return expected.size() + " ticks after the checkpoint, " + actual.size() + " after the restore";
+        }
+        int differences = 0;
+        String first = null;
+        for (int i = 0; i < expected.size(); i++) {
+            if (!expected.get(i).equals(actual.get(i))) {
+                if (first == null) {
+                    first = "expected " + expected.get(i) + ", got " + actual.get(i);
+                }
+                differences++;
+            }
+        }
+        return differences == 0 ? null : differences + " differing ticks, first " + first;
+    }
+
+    private static RabbitsGrassSimulationModel model(String[] configuration) {
+        RabbitsGrassSimulationModel model = new RabbitsGrassSimulationModel();
+        model.setLogLevel(RabbitsGrassLog.ERROR);
+        for (String[] parameters : new String[][] { COMMON, configuration }) {
+            for (String parameter : parameters) {
+                int eq = parameter.indexOf('=');
+                RabbitsGrassBatchRunner.setParameter(model, parameter.substring(0, eq), parameter.substring(eq + 1));
+            }
+        }
+        return model;
+    }
+
+    private static List<String> readRecords(File file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        RabbitsGrassRecordReader reader = new RabbitsGrassRecordReader(file.getPath());
+        try {
+            while (reader.next()) {
+                lines.add(reader.getTick() + "," + reader.getRabbits() + "," + reader.getGrass() + ","
+                        + reader.getBirths() + "," + reader.getDeaths());
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    private static List<String> read(File file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        try {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                lines.add(line);
+            }
+        } finally {
+            in.close();
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.SplittableRandom;
+
+/**
+ * Checks that RabbitsGrassDownsampler keeps the extremes of a series however long it gets.
+ * Random series of growing lengths are added to a downsampler with few buckets. The points it returns must
+ * fit in its capacity, be points of the series in x order, end with the recent points, and include the
+ * lowest and the highest point of the series.
+ * Usage: java -cp <classes> RabbitsGrassDownsamplerTest, exits with status 1 if a length fails.
+ * @author
+ */
+public class RabbitsGrassDownsamplerTest {
+
+    private static final int BUCKETS = 8;
+    private static final int RECENT = 5;
+
+    private static final int[] LENGTHS = { 1, 5, 6, 20, 21, 100, 1000, 12345, 100000 };
+
+    /**
+     * Main function
+     * @param args, unused
+     */
+    public static void main(String[] args) {
+        int failures = 0;
+        for (int length : LENGTHS) {
+            String error = check(length, new SplittableRandom(length));
+            System.out.println((error == null ? "ok     " : "FAILED ") + length + " points" + (error == null ? "" : ": " + error));
+            if (error != null) {
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Adds a random walk with rare spikes to a downsampler and checks the points it returns
+     * @param length, the number of points of the series
+     * @param random, the random generator of the series
+     * @return a description of the first failed check, null if every check passes
+     */
+    private static String check(int length, SplittableRandom random) {
+        RabbitsGrassDownsampler downsampler = new RabbitsGrassDownsampler(BUCKETS, RECENT);
+        double[] series = new double[length];
+        double y = 0;
+        int lowest = 0;
+        int highest = 0;
+        for (int x = 0; x < length; x++) {
+            y += random.nextDouble() - 0.5;
+            series[x] = random.nextInt(1000) == 0 ? y + (random.nextBoolean() ? 100 : -100) * random.nextDouble() : y;
+            downsampler.add(x, series[x]);
+            if (series[x] < series[lowest]) {
+                lowest = x;
+            }
+            if (series[x] > series[highest]) {
+                highest = x;
+            }
+        }
+
+        double[] xs = new double[downsampler.capacity()];
+        double[] ys = new double[downsampler.capacity()];
+        int n = downsampler.points(xs, ys);
+        if (n > downsampler.capacity()) {
+            return n + " points, capacity " + downsampler.capacity();
+        }
+        boolean lowestKept = false;
+        boolean highestKept = false;
+        for (int i = 0; i < n; i++) {
+            int x = (int) xs[i];
+            if (x != xs[i] || x < 0 || x >= length || series[x] != ys[i]) {
+                return "(" + xs[i] + ", " + ys[i] + ") is not a point of the series";
+            }
+            if (i > 0 && xs[i] <= xs[i - 1]) {
+                return "x " + xs[i] + " follows " + xs[i - 1];
+            }
+            lowestKept |= x == lowest;
+            highestKept |= x == highest;
+        }
+        int recent = Math.min(RECENT, length);
+        for (int i = 0; i < recent; i++) {
+            if (xs[n - recent + i] != length - recent + i) {
+                return "recent point " + i + " is at x " + xs[n - recent + i] + ", expected " + (length - recent + i);
+            }
+        }
+        if (!lowestKept) {
+            return "lowest point at x " + lowest + " is missing";
+        }
+        if (!highestKept) {
+            return "highest point at x " + highest + " is missing";
+        }
+        return null;
+    }
+}
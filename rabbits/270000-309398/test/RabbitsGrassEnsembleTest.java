@@ -0,0 +1,103 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that merging the ensembles of groups of replicas gives the statistics of a single pass over all of them.
+ * Replicas of random lengths are spread over groups of different sizes, some empty; every group is recorded
+ * in its own ensemble and merged into a total. The count, mean and variance of every tick must match a
+ * single-pass Welford over the values of every replica.
+ * Usage: java -cp <classes> RabbitsGrassEnsembleTest, exits with status 1 if a case fails.
+ * @author
+ */
+public class RabbitsGrassEnsembleTest {
+
+    private static final int TICKS = 50;
+
+    //Relative tolerance of the comparisons
+    private static final double TOLERANCE = 1e-9;
+
+    //Number of replicas of every group, for every case
+    private static final int[][] GROUPS = {
+            { 1 },
+            { 1, 1 },
+            { 5, 0, 3 },
+            { 0, 0, 7 },
+            { 1, 2, 3, 4, 5, 6, 7, 8 },
+            { 40, 1, 25 },
+    };
+
+    /**
+     * Main function
+     * @param args, unused
+     */
+    public static void main(String[] args) {
+        int failures = 0;
+        for (int i = 0; i < GROUPS.length; i++) {
+            String error = check(GROUPS[i], new SplittableRandom(i));
+            System.out.println((error == null ? "ok     " : "FAILED ") + "groups " + Arrays.toString(GROUPS[i])
+                    + (error == null ? "" : ": " + error));
+            if (error != null) {
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Records random replicas by group, merges the groups and compares the result with a single pass
+     * @param groups, the number of replicas of every group
+     * @param random, the random generator of the replicas
+     * @return a description of the first difference, null if the statistics match
+     */
+    private static String check(int[] groups, SplittableRandom random) {
+        RabbitsGrassEnsemble total = new RabbitsGrassEnsemble(TICKS);
+        //Single-pass Welford, by metric and tick
+        long[] count = new long[TICKS + 1];
+        double[][] mean = new double[2][TICKS + 1];
+        double[][] m2 = new double[2][TICKS + 1];
+
+        for (int replicas : groups) {
+            RabbitsGrassEnsemble group = new RabbitsGrassEnsemble(TICKS);
+            for (int r = 0; r < replicas; r++) {
+                //A replica may stop early, and values have a large offset to expose cancellation
+                int length = 1 + random.nextInt(TICKS);
+                for (int tick = 1; tick <= length; tick++) {
+                    double rabbits = 1e6 + random.nextInt(1000);
+                    double grass = random.nextDouble() * 1e4;
+                    group.add(tick, rabbits, grass);
+                    long n = ++count[tick];
+                    double[] values = { rabbits, grass };
+                    for (int metric = 0; metric < 2; metric++) {
+                        double delta = values[metric] - mean[metric][tick];
+                        mean[metric][tick] += delta / n;
+                        m2[metric][tick] += delta * (values[metric] - mean[metric][tick]);
+                    }
+                }
+            }
+            total.merge(group);
+        }
+
+        int[] metrics = { RabbitsGrassEnsemble.RABBITS, RabbitsGrassEnsemble.GRASS };
+        for (int tick = 1; tick <= TICKS; tick++) {
+            if (total.getCount(tick) != count[tick]) {
+                return "tick " + tick + ": " + total.getCount(tick) + " replicas, expected " + count[tick];
+            }
+            for (int metric = 0; metric < 2; metric++) {
+                double variance = count[tick] > 1 ? m2[metric][tick] / (count[tick] - 1) : 0;
+                if (!close(total.getMean(metrics[metric], tick), mean[metric][tick])) {
+                    return "tick " + tick + ": mean " + total.getMean(metrics[metric], tick) + ", expected " + mean[metric][tick];
+                }
+                if (!close(total.getVariance(metrics[metric], tick), variance)) {
+                    return "tick " + tick + ": variance " + total.getVariance(metrics[metric], tick) + ", expected " + variance;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean close(double actual, double expected) {
+        return Math.abs(actual - expected) <= TOLERANCE * Math.max(1, Math.abs(expected));
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that RabbitsGrassFreeCells.select returns the free cell of the requested rank.
+ * For several sizes, cells are occupied and freed at random, and after every change select(k) is compared,
+ * for every rank k, with the k-th free cell found by scanning the cells in order.
+ * Usage: java -cp <classes> RabbitsGrassFreeCellsTest, exits with status 1 if a size fails.
+ * @author
+ */
+public class RabbitsGrassFreeCellsTest {
+
+    //Sizes around the 64 cells of a word, and one spanning many words
+    private static final int[] SIZES = { 1, 2, 63, 64, 65, 127, 128, 129, 1000 };
+
+    private static final int CHANGES = 300;
+
+    /**
+     * Main function
+     * @param args, unused
+     */
+    public static void main(String[] args) {
+        int failures = 0;
+        for (int cells : SIZES) {
+            String error = check(cells, new SplittableRandom(cells));
+            System.out.println((error == null ? "ok     " : "FAILED ") + cells + " cells" + (error == null ? "" : ": " + error));
+            if (error != null) {
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Occupies and frees random cells of a space, comparing select with a scan after every change
+     * @param cells, the number of cells of the space
+     * @param random, the random generator picking the cells
+     * @return a description of the first difference, null if select always matches
+     */
+    private static String check(int cells, SplittableRandom random) {
+        RabbitsGrassFreeCells free = new RabbitsGrassFreeCells(cells);
+        boolean[] occupied = new boolean[cells];
+        String error = compare(free, occupied);
+        for (int change = 0; change < CHANGES && error == null; change++) {
+            int cell = random.nextInt(cells);
+            if (occupied[cell]) {
+                free.vacate(cell);
+            } else {
+                free.occupy(cell);
+            }
+            occupied[cell] = !occupied[cell];
+            error = compare(free, occupied);
+        }
+        return error;
+    }
+
+    private static String compare(RabbitsGrassFreeCells free, boolean[] occupied) {
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int cell = 0; cell < occupied.length; cell++) {
+            if (!occupied[cell]) {
+                expected.add(cell);
+            }
+        }
+        if (free.size() != expected.size()) {
+            return free.size() + " free cells, expected " + expected.size();
+        }
+        for (int k = 0; k < expected.size(); k++) {
+            int cell = free.select(k);
+            if (cell != expected.get(k)) {
+                return "select(" + k + ") returned " + cell + ", expected " + expected.get(k);
+            }
+        }
+        return null;
+    }
+}
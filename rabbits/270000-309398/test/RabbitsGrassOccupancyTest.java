@@ -0,0 +1,89 @@
+import java.util.SplittableRandom;
+
+/**
+ * Checks RabbitsGrassOccupancy.countAround against a cell by cell count of the square around a cell.
+ * Spaces of several shapes are filled at random, and every cell is checked with radii from 0 to beyond the
+ * size of the space, so that the square wraps around the torus and gets clamped.
+ * Usage: java -cp <classes> RabbitsGrassOccupancyTest, exits with status 1 if a space fails.
+ * @author
+ */
+public class RabbitsGrassOccupancyTest {
+
+    //Shapes with rows of one word, exactly one word, and several words
+    private static final int[][] SHAPES = { { 1, 1 }, { 7, 5 }, { 64, 3 }, { 65, 4 }, { 130, 6 } };
+
+    //Fractions of occupied cells
+    private static final double[] DENSITIES = { 0.1, 0.5, 0.9 };
+
+    /**
+     * Main function
+     * @param args, unused
+     */
+    public static void main(String[] args) {
+        int failures = 0;
+        for (int[] shape : SHAPES) {
+            for (double density : DENSITIES) {
+                String error = check(shape[0], shape[1], density, new SplittableRandom(shape[0] * 31 + shape[1]));
+                System.out.println((error == null ? "ok     " : "FAILED ") + shape[0] + "x" + shape[1] + " at " + density
+                        + (error == null ? "" : ": " + error));
+                if (error != null) {
+                    failures++;
+                }
+            }
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Fills a space at random and compares countAround with a cell by cell count for every cell and radius
+     * @param sizeX, width of the space
+     * @param sizeY, height of the space
+     * @param density, the probability that a cell is occupied
+     * @param random, the random generator filling the space
+     * @return a description of the first difference, null if countAround always matches
+     */
+    private static String check(int sizeX, int sizeY, double density, SplittableRandom random) {
+        RabbitsGrassOccupancy occupancy = new RabbitsGrassOccupancy(sizeX, sizeY);
+        boolean[][] occupied = new boolean[sizeX][sizeY];
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                if (random.nextDouble() < density) {
+                    occupancy.set(x, y);
+                    occupied[x][y] = true;
+                }
+            }
+        }
+        int maxRadius = Math.max(sizeX, sizeY) + 1;
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                for (int r = 0; r <= maxRadius; r++) {
+                    int expected = count(occupied, sizeX, sizeY, x, y, r);
+                    int actual = occupancy.countAround(x, y, r);
+                    if (actual != expected) {
+                        return "countAround(" + x + ", " + y + ", " + r + ") returned " + actual + ", expected " + expected;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts the occupied cells of the square of radius r around a cell, visiting every distinct cell once
+     */
+    private static int count(boolean[][] occupied, int sizeX, int sizeY, int x, int y, int r) {
+        int width = Math.min(2 * r + 1, sizeX);
+        int height = Math.min(2 * r + 1, sizeY);
+        int count = 0;
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                if (occupied[Math.floorMod(x - r + i, sizeX)][Math.floorMod(y - r + j, sizeY)]) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
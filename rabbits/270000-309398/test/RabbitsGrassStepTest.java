@@ -0,0 +1,128 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that the parallel steps are deterministic: the tiled step and the synchronous step must give the
+ * same series every time a configuration is run with the same seed, whatever the scheduling of their threads.
+ * Every configuration is run REPEATS times at once, so that the runs also compete for the worker threads.
+ * Usage: java -cp <classes> RabbitsGrassStepTest, exits with status 1 if a configuration fails.
+ * @author
+ */
+public class RabbitsGrassStepTest {
+
+    private static final int TICKS = 300;
+    private static final int REPEATS = 4;
+
+    //Parameters shared by every configuration: enough rabbits for every tile to have work
+    private static final String[] COMMON = { "GridSize=60", "NumInitRabbits=600", "NumInitGrass=2000",
+            "GrassGrowthRate=200", "BirthThreshold=15", "LossReproduction=5", "Seed=42", "CompactPopulation=true" };
+
+    //Configurations, on top of the common parameters
+    private static final String[][] CONFIGURATIONS = {
+            { "StepTiles=2" },
+            { "StepTiles=3" },
+            { "StepTiles=5" },
+            { "SynchronousStep=true" },
+            { "SynchronousStep=true", "ForagingRadius=2" },
+    };
+
+    /**
+     * Main function
+     * @param args, unused
+     */
+    public static void main(String[] args) throws Exception {
+        File directory = new File(System.getProperty("java.io.tmpdir"));
+        int failures = 0;
+        for (String[] configuration : CONFIGURATIONS) {
+            String error = check(directory, configuration);
+            System.out.println((error == null ? "ok     " : "FAILED ") + String.join(" ", configuration)
+                    + (error == null ? "" : ": " + error));
+            if (error != null) {
+                failures++;
+            }
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a configuration REPEATS times at once and compares the series
+     * @param directory, where the series are written
+     * @param configuration, the parameters of the configuration
+     * @return a description of the first difference, null if every run matches the first one
+     * @throws Exception if a run fails
+     */
+    private static String check(File directory, String[] configuration) throws Exception {
+        final File[] series = new File[REPEATS];
+        final IOException[] errors = new IOException[REPEATS];
+        Thread[] runs = new Thread[REPEATS];
+        for (int i = 0; i < REPEATS; i++) {
+            series[i] = new File(directory, "rabbits-step-test-" + i + ".csv");
+            final RabbitsGrassSimulationModel model = model(configuration);
+            final int run = i;
+            runs[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        new RabbitsGrassBatchRunner(model, TICKS, series[run].getPath()).run();
+                    } catch (IOException e) {
+                        errors[run] = e;
+                    }
+                }
+            });
+            runs[i].start();
+        }
+        for (int i = 0; i < REPEATS; i++) {
+            runs[i].join();
+            if (errors[i] != null) {
+                throw errors[i];
+            }
+        }
+
+        List<String> expected = read(series[0]);
+        if (expected.size() != TICKS + 1) {
+            return expected.size() - 1 + " ticks run, expected " + TICKS;
+        }
+        for (int i = 1; i < REPEATS; i++) {
+            List<String> actual = read(series[i]);
+            for (int tick = 0; tick < Math.min(expected.size(), actual.size()); tick++) {
+                if (!expected.get(tick).equals(actual.get(tick))) {
+                    return "run " + i + ": expected " + expected.get(tick) + ", got " + actual.get(tick);
+                }
+            }
+            if (expected.size() != actual.size()) {
+                return "run " + i + ": " + (actual.size() - 1) + " ticks, expected " + (expected.size() - 1);
+            }
+        }
+        return null;
+    }
+
+    private static RabbitsGrassSimulationModel model(String[] configuration) {
+        RabbitsGrassSimulationModel model = new RabbitsGrassSimulationModel();
+        model.setLogLevel(RabbitsGrassLog.ERROR);
+        for (String[] parameters : new String[][] { COMMON, configuration }) {
+            for (String parameter : parameters) {
+                int eq = parameter.indexOf('=');
+                RabbitsGrassBatchRunner.setParameter(model, parameter.substring(0, eq), parameter.substring(eq + 1));
+            }
+        }
+        return model;
+    }
+
+    private static List<String> read(File file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        try {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                lines.add(line);
+            }
+        } finally {
+            in.close();
+        }
+        return lines;
+    }
+}